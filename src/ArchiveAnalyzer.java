@@ -0,0 +1,304 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Annotates an archive of games. Games are streamed out of a PDN file, each
+ * one is analysed on a fixed pool of threads by a fixed-depth search of every
+ * position where a player is to move, and the games are written back out as
+ * PDN, in their original order, with a comment on each blunder (a move that
+ * loses at least -blunder points against the best one) and each missed win.
+ *
+ * At most -queue games are read ahead of the one being written; once that
+ * many are in flight the reader waits, so memory stays the same however big
+ * the archive is. Throughput in positions per second is reported as it goes.
+ *
+ * Usage: java ArchiveAnalyzer -in games.pdn [-out annotated.pdn] [-depth n] [-threads n]
+ *        [-queue n] [-blunder points] [-hash MB] [-tablebase dir]
+ *
+ * @author Zach McGuckin
+ *
+ */
+public class ArchiveAnalyzer
+{
+   private static final long PROGRESS_MILLIS = 10000;
+
+   public static void main(String[] args) throws Exception
+   {
+      String in = null;
+      String out = null;
+      int depth = 8;
+      int threads = Runtime.getRuntime().availableProcessors();
+      int queue = 0;
+      int blunder = 150;
+      int hash = 16;
+      Tablebase tablebase = null;
+      for (int i = 0; i + 1 < args.length; i += 2)
+      {
+         String value = args[i + 1];
+         if (args[i].equals("-in"))
+            in = value;
+         else if (args[i].equals("-out"))
+            out = value;
+         else if (args[i].equals("-depth"))
+            depth = Integer.parseInt(value);
+         else if (args[i].equals("-threads"))
+            threads = Integer.parseInt(value);
+         else if (args[i].equals("-queue"))
+            queue = Integer.parseInt(value);
+         else if (args[i].equals("-blunder"))
+            blunder = Integer.parseInt(value);
+         else if (args[i].equals("-hash"))
+            hash = Integer.parseInt(value);
+         else if (args[i].equals("-tablebase"))
+            tablebase = Tablebase.open(new File(value));
+         else
+            throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+      if (in == null)
+         throw new IllegalArgumentException("Usage: java ArchiveAnalyzer -in games.pdn [-out annotated.pdn] [-depth n]"
+               + " [-threads n] [-queue n] [-blunder points] [-hash MB] [-tablebase dir]");
+      if (queue <= 0)
+         queue = threads * 4;
+
+      Writer sink = (out == null) ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+            : new OutputStreamWriter(new FileOutputStream(out), StandardCharsets.UTF_8);
+      ArrayDeque<Future<Analysis>> pending = new ArrayDeque<Future<Analysis>>();
+      Totals totals = new Totals();
+      ExecutorService pool = Executors.newFixedThreadPool(threads);
+      try (PdnReader reader = new PdnReader(new InputStreamReader(new FileInputStream(in), StandardCharsets.UTF_8));
+            PdnWriter writer = new PdnWriter(sink))
+      {
+         while (true)
+         {
+            PdnGame game;
+            try
+            {
+               game = reader.next();
+            }
+            catch (PdnReader.PdnException e)
+            {
+               System.err.println("Skipped: " + e.getMessage());
+               ++totals.skipped;
+               continue;
+            }
+            if (game == null)
+               break;
+            // Backpressure: the reader waits for the oldest game once the queue is full
+            if (pending.size() >= queue)
+               totals.write(writer, pending.removeFirst());
+            pending.addLast(pool.submit(new Analysis(game, depth, blunder, hash, tablebase)));
+         }
+         while (!pending.isEmpty())
+            totals.write(writer, pending.removeFirst());
+      }
+      finally
+      {
+         // Every game has been written by now unless something failed; the pool's threads
+         // are not daemons, so they must go on every way out or the JVM never exits
+         pool.shutdownNow();
+      }
+      System.err.println(totals);
+   }
+
+   /** Counts for the progress report, kept by the writing thread */
+   private static final class Totals
+   {
+      private final long start = System.currentTimeMillis();
+      private long lastReport = start;
+      private long games;
+      private long positions;
+      private long blunders;
+      private long missedWins;
+      private long skipped;
+
+      void write(PdnWriter writer, Future<Analysis> next) throws IOException, ExecutionException
+      {
+         Analysis a;
+         try
+         {
+            a = next.get();
+         }
+         catch (InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+         }
+         writer.write(a.annotated, a.comments);
+         ++games;
+         positions += a.positions;
+         blunders += a.blunders;
+         missedWins += a.missedWins;
+         long now = System.currentTimeMillis();
+         if (now - lastReport >= PROGRESS_MILLIS)
+         {
+            lastReport = now;
+            System.err.println(this);
+         }
+      }
+
+      @Override
+      public String toString()
+      {
+         long millis = Math.max(1, System.currentTimeMillis() - start);
+         return String.format("%d games, %d positions in %.1f s: %.0f positions/s, %d blunders, %d missed wins, %d skipped",
+               games, positions, millis / 1000.0, positions * 1000.0 / millis, blunders, missedWins, skipped);
+      }
+   }
+
+   /** Analysis of one game, run on a pool thread */
+   private static final class Analysis implements Callable<Analysis>
+   {
+      // Tables are reused by the games that run on the same pool thread
+      private static final ThreadLocal<TranspositionTable> TABLES = new ThreadLocal<TranspositionTable>();
+
+      private final PdnGame game;
+      private final int depth;
+      private final int blunder;
+      private final int hash;
+      private final Tablebase tablebase;
+
+      // Results, filled in by call()
+      PdnGame annotated;
+      String[] comments;
+      int positions;
+      int blunders;
+      int missedWins;
+
+      Analysis(PdnGame game, int depth, int blunder, int hash, Tablebase tablebase)
+      {
+         this.game = game;
+         this.depth = depth;
+         this.blunder = blunder;
+         this.hash = hash;
+         this.tablebase = tablebase;
+      }
+
+      @Override
+      public Analysis call()
+      {
+         TranspositionTable tt = TABLES.get();
+         if (tt == null)
+         {
+            tt = new TranspositionTable(hash);
+            TABLES.set(tt);
+         }
+         tt.clear(); // the same game gets the same annotations whichever thread analyses it
+         Search search = new Search(tt, tablebase);
+
+         // Search every position that starts a turn: the best score there, and the
+         // negated score of the next one is what the move actually played was worth
+         int n = game.moveCount();
+         int[] turnStep = new int[n + 1]; // index of the first step of each turn
+         int[] best = new int[n + 1];
+         int[][] bestTurn = new int[n + 1][]; // every step of the engine's move, multi-jumps included
+         int turns = 0;
+         Position p = game.start();
+         for (int i = 0; i <= n; ++i)
+         {
+            if (p.pending() < 0)
+            {
+               Search.Result r = search.search(p, depth, 0);
+               turnStep[turns] = i;
+               best[turns] = r.score;
+               bestTurn[turns] = (r.move == Move.NONE) ? null : turn(p, r.move, search);
+               ++turns;
+            }
+            if (i < n)
+               p.play(game.move(i));
+         }
+         positions = turns;
+
+         comments = new String[n];
+         int win = Search.TABLEBASE_WIN - Search.MAX_PLY;
+         for (int t = 0; t + 1 < turns; ++t)
+         {
+            int played = -best[t + 1];
+            int last = turnStep[t + 1] - 1;
+            boolean other = bestTurn[t] != null && !played(turnStep[t], turnStep[t + 1], bestTurn[t]);
+            if (best[t] >= win && played < win && other)
+            {
+               comments[last] = "missed win, best " + Move.notation(bestTurn[t]);
+               ++missedWins;
+            }
+            else if (best[t] - played >= blunder && other)
+            {
+               comments[last] = String.format("blunder %+.2f, best %s", (played - best[t]) / 100.0,
+                     Move.notation(bestTurn[t]));
+               ++blunders;
+            }
+         }
+
+         Map<String, String> tags = game.tags();
+         tags.put("Annotator", "ArchiveAnalyzer depth " + depth);
+         annotated = new PdnGame(tags, game.start(), moves(), game.result());
+         return this;
+      }
+
+      // The engine's whole turn from p starting with "first": the rest of a multi-jump is the
+      // table's best move where it has a legal one, and otherwise searched for
+      private int[] turn(Position p, int first, Search search)
+      {
+         Position q = new Position(p);
+         int side = q.sideToMove();
+         int[] steps = { first };
+         int[] moves = new int[MoveGenerator.MAX_MOVES];
+         q.play(first);
+         while (q.sideToMove() == side)
+         {
+            int count = MoveGenerator.generate(q, moves);
+            int next = moves[0];
+            if (count > 1)
+            {
+               int hint = TranspositionTable.move(search.table().probe(q.hash()));
+               next = Move.NONE;
+               for (int i = 0; i < count && next == Move.NONE; ++i)
+               {
+                  if (moves[i] == hint)
+                     next = hint;
+               }
+               if (next == Move.NONE)
+                  next = search.search(q, depth, 0).move;
+            }
+            steps = Arrays.copyOf(steps, steps.length + 1);
+            steps[steps.length - 1] = next;
+            q.play(next);
+         }
+         return steps;
+      }
+
+      // Whether the steps from..to-1 of the game are the same turn as "steps"
+      private boolean played(int from, int to, int[] steps)
+      {
+         if (to - from != steps.length)
+            return false;
+         for (int i = 0; i < steps.length; ++i)
+         {
+            if (game.move(from + i) != steps[i])
+               return false;
+         }
+         return true;
+      }
+
+      private int[] moves()
+      {
+         int[] moves = new int[game.moveCount()];
+         for (int i = 0; i < moves.length; ++i)
+            moves[i] = game.move(i);
+         return moves;
+      }
+   }
+}
@@ -0,0 +1,92 @@
+/**
+ * Helpers for the 32-bit board layout used by the engine.
+ * Only the 32 playable dark squares are stored. Square s sits on row s / 4,
+ * rows are numbered the same way as CheckersMain (red starts on rows 0-2 and
+ * moves down, black starts on rows 5-7 and moves up). Even rows use columns
+ * 0,2,4,6 and odd rows use columns 1,3,5,7.
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class Bitboard
+{
+   public static final int SQUARES = 32;
+
+   public static final int EVEN_ROWS = 0x0F0F0F0F;
+   public static final int ODD_ROWS = 0xF0F0F0F0;
+   public static final int TOP_ROW = 0x0000000F;    // row 0, where black men are crowned
+   public static final int BOTTOM_ROW = 0xF0000000; // row 7, where red men are crowned
+
+   // Squares that still have a neighbour in the given direction, split by the shift it takes
+   private static final int DOWN_LEFT_3 = 0x0E0E0E0E;
+   private static final int DOWN_LEFT_4 = 0x00F0F0F0;
+   private static final int DOWN_RIGHT_4 = 0x0F0F0F0F;
+   private static final int DOWN_RIGHT_5 = 0x00707070;
+   private static final int UP_LEFT_5 = 0x0E0E0E00;
+   private static final int UP_LEFT_4 = 0xF0F0F0F0;
+   private static final int UP_RIGHT_4 = 0x0F0F0F00;
+   private static final int UP_RIGHT_3 = 0x70707070;
+
+   private Bitboard()
+   {
+   }
+
+   /** Shift every square one step to row+1, col-1 */
+   public static int downLeft(int b)
+   {
+      return ((b & DOWN_LEFT_3) << 3) | ((b & DOWN_LEFT_4) << 4);
+   }
+
+   /** Shift every square one step to row+1, col+1 */
+   public static int downRight(int b)
+   {
+      return ((b & DOWN_RIGHT_4) << 4) | ((b & DOWN_RIGHT_5) << 5);
+   }
+
+   /** Shift every square one step to row-1, col-1 */
+   public static int upLeft(int b)
+   {
+      return ((b & UP_LEFT_5) >>> 5) | ((b & UP_LEFT_4) >>> 4);
+   }
+
+   /** Shift every square one step to row-1, col+1 */
+   public static int upRight(int b)
+   {
+      return ((b & UP_RIGHT_4) >>> 4) | ((b & UP_RIGHT_3) >>> 3);
+   }
+
+   /** Return the square index of (row, col), or -1 for a light square or a cell off the board */
+   public static int square(int row, int col)
+   {
+      if (row < 0 || row >= 8 || col < 0 || col >= 8 || ((row + col) & 1) != 0)
+         return -1;
+      return (row << 2) | (col >> 1);
+   }
+
+   public static int row(int square)
+   {
+      return square >> 2;
+   }
+
+   public static int col(int square)
+   {
+      return ((square & 3) << 1) | ((square >> 2) & 1);
+   }
+
+   /**
+    * Return the standard 1-32 draughts number of a square. The standard board
+    * puts the first mover (our red) on 1-12, mirrored left to right from ours.
+    */
+   public static int number(int square)
+   {
+      return (square & ~3) + (3 - (square & 3)) + 1;
+   }
+
+   /** Return the square with the standard 1-32 number, or -1 */
+   public static int fromNumber(int number)
+   {
+      if (number < 1 || number > SQUARES)
+         return -1;
+      return number(number - 1) - 1; // the mirror is its own inverse
+   }
+}
@@ -0,0 +1,149 @@
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.swing.*;
+
+/**
+ * A grid of small boards for watching many games at once. Games on any
+ * thread post positions with show(); a Swing timer running at a capped frame
+ * rate repaints just the boards that changed since the last frame, so a burst
+ * of moves costs one repaint per board. Boards are scaled to fit the panel and
+ * the sprites come pre-scaled to the cell size from SpriteCache.
+ *
+ * @author Zach McGuckin
+ *
+ */
+@SuppressWarnings("serial")
+public class BoardGrid extends JPanel
+{
+   private static final int ROWS = Variant.ENGLISH.size; // the games shown are English draughts
+   private static final int COLS = Variant.ENGLISH.size;
+   private static final int GAP = 2; // pixels between boards
+
+   private final int boards;
+   private final int columns;
+   private final int rows;
+   private final AtomicReferenceArray<int[]> shown; // red, black, kings per board, as last posted
+   private final AtomicIntegerArray dirty;          // 1 when a board changed since it was last repainted
+   private final Timer timer;
+   private final FrameTimer frameTimer = new FrameTimer();
+   private static final Metrics.Timer PAINT = Metrics.timer("grid.paint");
+
+   public BoardGrid(int boards, int framesPerSecond)
+   {
+      this.boards = boards;
+      columns = (int) Math.ceil(Math.sqrt(boards));
+      rows = (boards + columns - 1) / columns;
+      shown = new AtomicReferenceArray<int[]>(boards);
+      dirty = new AtomicIntegerArray(boards);
+      setBackground(Color.DARK_GRAY);
+      int cell = Math.max(4, 100 / columns);
+      setPreferredSize(new Dimension(columns * (cell * COLS + GAP), rows * (cell * ROWS + GAP)));
+      timer = new Timer(1000 / Math.max(1, framesPerSecond), new ActionListener()
+      {
+         @Override
+         public void actionPerformed(ActionEvent e)
+         {
+            flush();
+         }
+      });
+      timer.start();
+   }
+
+   public int boards()
+   {
+      return boards;
+   }
+
+   /** Paint time of the grid */
+   public FrameTimer frameTimer()
+   {
+      return frameTimer;
+   }
+
+   /** Show p on a board; may be called from any thread */
+   public void show(int board, Position p)
+   {
+      shown.set(board, new int[] { p.red(), p.black(), p.kings() });
+      dirty.set(board, 1);
+   }
+
+   /** Stop the repaint timer */
+   public void stop()
+   {
+      timer.stop();
+   }
+
+   // Runs on the EDT once a frame: queue a repaint of each board that changed
+   private void flush()
+   {
+      for (int i = 0; i < boards; ++i)
+      {
+         if (dirty.get(i) != 0 && dirty.getAndSet(i, 0) != 0)
+         {
+            Rectangle r = bounds(i);
+            repaint(r.x, r.y, r.width, r.height);
+         }
+      }
+   }
+
+   // Side of a cell in pixels at the panel's current size
+   private int cellSize()
+   {
+      int byWidth = getWidth() / columns - GAP;
+      int byHeight = getHeight() / rows - GAP;
+      return Math.max(1, Math.min(byWidth / COLS, byHeight / ROWS));
+   }
+
+   private Rectangle bounds(int board)
+   {
+      int size = cellSize() * COLS;
+      return new Rectangle((board % columns) * (size + GAP), (board / columns) * (size + GAP), size, size);
+   }
+
+   @Override
+   protected void paintComponent(Graphics g)
+   {
+      long start = System.nanoTime();
+      super.paintComponent(g);
+      Rectangle clip = g.getClipBounds();
+      if (clip == null)
+         clip = new Rectangle(0, 0, getWidth(), getHeight());
+
+      int cell = cellSize();
+      int padding = cell / 6;
+      int symbol = cell - padding * 2;
+      Image background = SpriteCache.get(SpriteCache.Sprite.background, cell * COLS, cell * ROWS);
+      Image red = SpriteCache.get(SpriteCache.Sprite.red, symbol, symbol);
+      Image black = SpriteCache.get(SpriteCache.Sprite.black, symbol, symbol);
+      Image redKing = SpriteCache.get(SpriteCache.Sprite.redKing, symbol, symbol);
+      Image blackKing = SpriteCache.get(SpriteCache.Sprite.blackKing, symbol, symbol);
+      for (int i = 0; i < boards; ++i)
+      {
+         Rectangle r = bounds(i);
+         if (!r.intersects(clip))
+            continue;
+         g.drawImage(background, r.x, r.y, null);
+         int[] pieces = shown.get(i);
+         if (pieces == null)
+            continue;
+         for (int square = 0; square < Bitboard.SQUARES; ++square)
+         {
+            int bit = 1 << square;
+            boolean king = (pieces[2] & bit) != 0;
+            Image sprite;
+            if ((pieces[0] & bit) != 0)
+               sprite = king ? redKing : red;
+            else if ((pieces[1] & bit) != 0)
+               sprite = king ? blackKing : black;
+            else
+               continue;
+            g.drawImage(sprite, r.x + Bitboard.col(square) * cell + padding, r.y + Bitboard.row(square) * cell + padding, null);
+         }
+      }
+      frameTimer.record(System.nanoTime() - start, (long) clip.width * clip.height);
+      PAINT.record(System.nanoTime() - start);
+   }
+}
@@ -1,612 +1,831 @@
-import java.awt.*;
-import java.awt.event.*;
-import java.awt.image.BufferedImage;
-import java.net.URL;
-
-import javax.imageio.ImageIO;
-import javax.swing.*;
-
-/**
- * Simple Checkers game created using Java Swing Graphics.
- *
- * @author Zach McGuckin
- *
- */
-@SuppressWarnings("serial")
-public class CheckersMain extends JFrame 
-{
-   // Named-constants for the game board
-   public static final int ROWS = 8;  // ROWS by COLS cells
-   public static final int COLS = 8;
-   // Named-constants of the various dimensions used for graphics drawing
-   public static final int cellSize = 100; // cell width and height (square)
-   public static final int canvasWidth = cellSize * COLS;  // the drawing canvas
-   public static final int canvasHeight = cellSize * ROWS;
-   public static final int gridWidth = 6;                   // Grid-line's width
-   public static final int gridWidthHalf = gridWidth / 2; // Grid-line's half-width
-   // Symbols (redPlayer/blackPlayer) are displayed inside a cell, with padding from border
-   public static final int cellPadding = cellSize / 6;
-   public static final int symbolSize = cellSize - cellPadding * 2; // width/height
-   public static final int symbolStrokeWidth = 8; // pen's stroke width
-
-   // Use an enumeration (inner class) to represent the various states of the game
-   public enum GameState 
-   {
-      playing, redWon, blackWon
-   }
-   private GameState currentState;  // the current game state
-
-   // Use an enumeration (inner class) to represent the seeds and cell contents
-   public enum Seed 
-   {
-      empty, redPlayer, blackPlayer, redKing, blackKing
-   }
-   private Seed currentPlayer;  // the current player
-   private Seed picked; //piece selected by mouse click
-   private boolean rightPlayer;  //checks if the right piece was chosen in relation to the player
-   
-   private int lastRow;
-   private int lastCol;  
-   
-   private boolean moved;
-   private boolean jumped;
-   private int jumps;
-
-   private Seed[][] board; // Game board of ROWS-by-COLS cells
-   private DrawCanvas canvas; // Drawing canvas (JPanel) for the game board
-   private JLabel statusBar;  // Status Bar
-
-   /** Constructor to setup the game and the GUI components */
-   public CheckersMain() 
-   {
-      canvas = new DrawCanvas();  // Construct a drawing canvas (a JPanel)
-      canvas.setPreferredSize(new Dimension(canvasWidth, canvasHeight));
-
-      // The canvas (JPanel) fires a MouseEvent upon mouse-click
-      canvas.addMouseListener(new MouseAdapter() 
-      {
-         //@Override
-         public void mousePressed(MouseEvent e) // mouse-clicked handler
-         {
-        	//if the game is going
-            if (currentState == GameState.playing) {
-            	int mouseX = e.getX();
-                int mouseY = e.getY();
-                // Get the row and column clicked
-                int rSelected = mouseY / cellSize;
-                int cSelected = mouseX / cellSize;
-            	if (rSelected >= 0 && rSelected < ROWS && cSelected >= 0 && cSelected < COLS) {
-            		if(currentPlayer == Seed.blackPlayer && (board[rSelected][cSelected] == Seed.blackPlayer || board[rSelected][cSelected] == Seed.blackKing)
-            				|| currentPlayer == Seed.redPlayer && (board[rSelected][cSelected]== Seed.redPlayer || board[rSelected][cSelected] == Seed.redKing)){
-            			//The player picked their own piece
-            			rightPlayer = true;
-            			//Keep that information of where the piece was
-            			picked = board[rSelected][cSelected];
-            			lastRow = rSelected;
-            			lastCol = cSelected;
-            		}
-                } 
-            } 
-            else        // game over
-               initGame(); // restart the game
-         }
-         public void mouseReleased(MouseEvent e) 
-		{  // mouse-clicked handler
-        	 
-	            if (currentState == GameState.playing) 
-	            {
-	            	int mouseX = e.getX();
-		            int mouseY = e.getY();
-		            // Get the row and column clicked
-		            int rReleased = mouseY / cellSize;
-		            int cReleased = mouseX / cellSize;
-	            	if (rReleased >= 0 && rReleased < ROWS && cReleased >= 0 && cReleased < COLS && rightPlayer == true && board[rReleased][cReleased] == Seed.empty) 
-	                {
-	            		if(!canJump()){
-	           				//Moving Up
-	           				if((rReleased+1==lastRow) && (cReleased+1==lastCol||cReleased-1==lastCol) && picked != Seed.redPlayer)
-	           				{
-	           					board[rReleased][cReleased] = picked; // Make a move
-	           					board[lastRow][lastCol] = Seed.empty;	
-	           					moved = true;
-	           				}
-	           				//Moving Down
-	           				else if((rReleased-1==lastRow) && (cReleased+1==lastCol||cReleased-1==lastCol) && picked != Seed.blackPlayer)
-	           				{
-	            				board[rReleased][cReleased] = picked; // Make a move
-	            				board[lastRow][lastCol] = Seed.empty;	
-	            				moved = true;
-	            			}
-	            		}
-	            		//Otherwise a piece the player has, has to jump
-	            		else{
-	            			Seed kingType = (currentPlayer == Seed.blackPlayer) ? Seed.blackKing : Seed.redKing;
-	            			//Jumping Up and Left
-            				if((rReleased+2==lastRow) && (cReleased+2==lastCol) && picked != Seed.redPlayer)
-            				{
-            					if(board[rReleased+1][cReleased+1] != currentPlayer && board[rReleased+1][cReleased+1] != kingType && board[rReleased+1][cReleased+1] != Seed.empty)
-            					{
-            						board[rReleased][cReleased] = picked; // Make a move
-            						board[lastRow][lastCol] = Seed.empty;
-            						board[rReleased+1][cReleased+1] = Seed.empty;
-            						jumped = true;
-            					}	
-            				}
-            				//Jumping Up and Right
-            				else if((rReleased+2==lastRow) && (cReleased-2==lastCol) && picked != Seed.redPlayer)
-            				{
-            					if(board[rReleased+1][cReleased-1] != currentPlayer && board[rReleased+1][cReleased-1] != kingType && board[rReleased+1][cReleased-1] != Seed.empty)
-            					{
-            						board[rReleased][cReleased] = picked; // Make a move
-            						board[lastRow][lastCol] = Seed.empty;
-            						board[rReleased+1][cReleased-1] = Seed.empty;
-            						jumped = true;
-            					}
-            				}
-            				//Jumping Down and Left
-            				else if((rReleased-2==lastRow) && (cReleased+2==lastCol) && picked != Seed.blackPlayer)
-            				{
-            					if(board[rReleased-1][cReleased+1] != currentPlayer && board[rReleased-1][cReleased+1] != kingType && board[rReleased-1][cReleased+1] != Seed.empty)
-            					{
-            						board[rReleased][cReleased] = picked; // Make a move
-            						board[lastRow][lastCol] = Seed.empty;
-            						board[rReleased-1][cReleased+1] = Seed.empty;
-            						jumped = true;
-            					}	
-            				}
-            				//Jumping Down and Right
-            				else if((rReleased-2==lastRow) && (cReleased-2==lastCol) && picked != Seed.blackPlayer)
-            				{
-            					if(board[rReleased-1][cReleased-1] != currentPlayer && board[rReleased-1][cReleased-1] != kingType && board[rReleased-1][cReleased-1] != Seed.empty)
-            					{
-            						board[rReleased][cReleased] = picked; // Make a move
-            						board[lastRow][lastCol] = Seed.empty;
-            						board[rReleased-1][cReleased-1] = Seed.empty;
-            						jumped = true;
-            					}
-            				}
-	            		}
-	            	}
-	            	//King the Player
-		            if((rReleased == 7 || rReleased == 0) && (moved == true || jumped == true))
-			        {
-		            	board[rReleased][cReleased] = (currentPlayer == Seed.blackPlayer) ? Seed.blackKing : Seed.redKing;; // Make them a King
-			            //Switch player
-			            currentPlayer = (currentPlayer == Seed.redPlayer) ? Seed.blackPlayer : Seed.redPlayer;
-			            rightPlayer = false;
-			            jumps = 0;
-			        }
-		            //If the player jumped and didn't become a king, check to see if they have more jumps
-			        else if(jumped == true && canJumpAgain(rReleased, cReleased))
-			           	jumps += 1;
-			        else if(moved == true || jumped == true)
-			        {
-			           	//Switch player
-			           	currentPlayer = (currentPlayer == Seed.redPlayer) ? Seed.blackPlayer : Seed.redPlayer;
-			           	rightPlayer = false;
-			           	jumps = 0;
-			        }
-	            }
-	            
-	            repaint();  // Call-back paintComponent().
-	            updateGame(currentPlayer);
-	            
-	            jumped = false;
-            	moved = false;
-			}
-      });
-
-      // Setup the status bar (JLabel) to display status message
-      statusBar = new JLabel("  ");
-      statusBar.setFont(new Font(Font.DIALOG_INPUT, Font.BOLD, 15));
-      statusBar.setBorder(BorderFactory.createEmptyBorder(2, 5, 4, 5));
-
-      Container cp = getContentPane();
-      cp.setLayout(new BorderLayout());
-      cp.add(canvas, BorderLayout.CENTER);
-      cp.add(statusBar, BorderLayout.PAGE_END); // same as SOUTH
-
-      setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-      pack();  // pack all the components in this JFrame
-      setTitle("Checkers");
-      setVisible(true);  // show this JFrame
-
-      board = new Seed[ROWS][COLS]; // allocate array
-      initGame(); // initialize the game board contents and game variables
-   }
-
-   /** Initialize the game-board contents and the status */
-   public void initGame() 
-   {
-      for (int row = 0; row < ROWS; ++row){
-         for (int col = 0; col < COLS; ++col) 
-         {
-            if(row == 0 || row == 2)
-            {
-            	if(col%2==0)
-            		board[row][col] = Seed.redPlayer;
-            }
-            else if(row == 1)
-            {
-            	if(col%2!=0)
-            		board[row][col] = Seed.redPlayer;
-            }            
-            else if(row == 5 || row == 7)
-            {
-            	if(col%2!=0)
-            		board[row][col] = Seed.blackPlayer;
-            }
-            else if(row == 6)
-            {
-            	if(col%2==0)
-            		board[row][col] = Seed.blackPlayer;
-            }            
-            else
-            	board[row][col] = Seed.empty;
-         }
-      }
-      
-      currentState = GameState.playing; // ready to play
-      currentPlayer = Seed.redPlayer;  // redPlayer plays first
-   }
-
-   /* Update the currentState after the player with "theSeed" has placed on
-       (rSelected, cSelected). */
-   public void updateGame(Seed theSeed) 
-   {
-      if (hasWon(theSeed)) 
-         currentState = (theSeed == Seed.redPlayer) ? GameState.blackWon : GameState.redWon;
-      // Otherwise, no change to current state (still GameState.playing).
-   }
-
-   /** Return true if the player with "theSeed" has won after placing at
-       (rSelected, cSelected) */
-   public boolean hasWon(Seed theSeed) 
-   {
-	   for (int row = 0; row < ROWS; ++row) 
-	      {
-	         for (int col = 0; col < COLS; ++col) 
-	         {
-	        	 //Check to see if the player has any pieces left on the board, if not they lose
-	        	 if(currentPlayer == Seed.redPlayer)
-	        	 {
-	        		 if (board[row][col] == currentPlayer || board[row][col] == Seed.redKing)
-	        			 return false;
-	        	 }
-	        	 else if(currentPlayer == Seed.blackPlayer)
-	        	 {
-	        		 if (board[row][col] == currentPlayer || board[row][col] == Seed.blackKing)
-	        			 return false;
-	        	 }
-	         }
-	      }
-      return true;
-   }
-   
-   public boolean canJump() 
-   {
-	   for (int row = 0; row < ROWS; ++row) 
-	      {
-	         for (int col = 0; col < COLS; ++col) 
-	         {
-	        	
-	            if(currentPlayer == Seed.redPlayer && (board[row][col] == Seed.redPlayer || board[row][col] == Seed.redKing)) 
-	            {
-	            	if(row+2<ROWS)
-	            	{
-	            		if(col+2<COLS)
-	            		{
-	            			if((board[row+1][col+1] == Seed.blackPlayer || board[row+1][col+1] == Seed.blackKing)&& board[row+2][col+2] == Seed.empty)
-	            				return true;
-	            		}
-	            		if(col-2>=0)
-	            		{
-	            			if((board[row+1][col-1] == Seed.blackPlayer || board[row+1][col-1] == Seed.blackKing) && board[row+2][col-2] == Seed.empty)
-	            				return true;
-	            		}
-	            	}
-	            	//Handle Backwards Jumping for kings
-            		if(board[row][col] == Seed.redKing){
-            			if(row-2>=0)
-    	            	{
-    	            		if(col+2<COLS)
-    	            		{
-    	            			if((board[row-1][col+1] == Seed.blackPlayer || board[row-1][col+1] == Seed.blackKing) && board[row-2][col+2] == Seed.empty)
-    	            				return true;
-    	            		}
-    	            		if(col-2>=0)
-    	            		{
-    	            			if((board[row-1][col-1] == Seed.blackPlayer || board[row-1][col-1] == Seed.blackKing) && board[row-2][col-2] == Seed.empty)
-    	            				return true;
-    	            		}
-    	            	}
-            		}
-	            }
-	            else if(currentPlayer == Seed.blackPlayer && (board[row][col] == Seed.blackPlayer || board[row][col] == Seed.blackKing)) 
-	            {
-	            	if(row-2>=0)
-	            	{
-	            		if(col+2<COLS)
-	            		{
-	            			if((board[row-1][col+1] == Seed.redPlayer || board[row-1][col+1] == Seed.redKing) && board[row-2][col+2] == Seed.empty){
-	            				return true;
-	            			}
-	            		}
-	            		if(col-2>=0)
-	            		{
-	            			if((board[row-1][col-1] == Seed.redPlayer || board[row-1][col-1] == Seed.redKing) && board[row-2][col-2] == Seed.empty){
-	            				return true;
-	            			}
-	            		}
-	            	}
-	            	//Handle backwards jumping for king
-	            	if(board[row][col] == Seed.blackKing){
-	            		if(row+2<ROWS)
-		            	{
-		            		if(col+2<COLS)
-		            		{
-		            			if((board[row+1][col+1] == Seed.redPlayer || board[row+1][col+1] == Seed.redKing) && board[row+2][col+2] == Seed.empty)
-		            				return true;
-		            		}
-		            		if(col-2>=0)
-		            		{
-		            			if((board[row+1][col-1] == Seed.redPlayer || board[row+1][col-1] == Seed.redKing)&& board[row+2][col-2] == Seed.empty)
-		            				return true;
-		            		}
-		            	}
-	            	}
-	            }
-	         }
-	      }
-	   //return false if true wasn't already returned
-      return false;
-   }
-   public boolean canJumpAgain(int row, int col) 
-   {
-	   if(currentPlayer == Seed.redPlayer)
-		{
-		   if(row+2<ROWS)
-		   {
-			   if(col+2<COLS)
-			   {
-				   if(board[row+1][col+1]==Seed.blackPlayer && board[row+2][col+2]==Seed.empty)
-				   {
-						return true;
-				   }
-			   }
-			   if(col-2>=0)
-			   {
-				   if(board[row+1][col-1]==Seed.blackPlayer && board[row+2][col-2]==Seed.empty)
-				   {
-					   return true;
-				   }
-			   }
-		   }
-		   //Handle backwards jumps for kings
-		   if(board[row][col] == Seed.redKing){
-			   if(row-2>=0)
-		       	{
-		       		if(col+2<COLS)
-		       		{
-		       			if((board[row-1][col+1] == Seed.blackPlayer || board[row-1][col+1] == Seed.blackKing) && board[row-2][col+2] == Seed.empty)
-		       				return true;
-		       		}
-		       		if(col-2>=0)
-		       		{
-		       			if((board[row-1][col-1] == Seed.blackPlayer || board[row-1][col-1] == Seed.blackKing) && board[row-2][col-2] == Seed.empty)
-		       				return true;
-		       		}
-		       	}
-		   }
-		}
-	   //The current player is black
-	   else
-	   {
-		   if(row-2>=0)
-		   {
-			   if(col+2<COLS)
-			   {
-				   if(board[row-1][col+1]==Seed.redPlayer && board[row-2][col+2]==Seed.empty)
-				   {
-						return true;
-				   }
-			   }
-			   if(col-2>=0)
-			   {
-				   if(board[row-1][col-1]==Seed.redPlayer && board[row-2][col-2]==Seed.empty)
-				   {
-					   return true;
-				   }
-			   }
-		   }
-		   if(board[row][col] == Seed.blackKing){
-			   if(row+2<ROWS)
-		       	{
-		       		if(col+2<COLS)
-		       		{
-		       			if((board[row+1][col+1] == Seed.redPlayer || board[row+1][col+1] == Seed.redKing) && board[row+2][col+2] == Seed.empty)
-		       				return true;
-		       		}
-		       		if(col-2>=0)
-		       		{
-		       			if((board[row+1][col-1] == Seed.redPlayer || board[row+1][col-1] == Seed.redKing)&& board[row+2][col-2] == Seed.empty)
-		       				return true;
-		       		}
-		       	}
-		   }
-		}
-      return false;
-   }
-
-   /**
-    *  Inner class DrawCanvas (extends JPanel) used for custom graphics drawing.
-    */
-   class DrawCanvas extends JPanel 
-   {
-      //@Override
-      public void paintComponent(Graphics g) // invoke via repaint()
-      {  
-         super.paintComponent(g);    // fill background
-         setBackground(Color.WHITE); // set its background color
-
-         // Draw the Seeds of all the cells if they are not empty
-         // Use Graphics2D
-         Graphics2D g2d = (Graphics2D)g;
-         g2d.setStroke(new BasicStroke(symbolStrokeWidth, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));  // Graphics2D only
-         BufferedImage bg = null;
-		 try 
-		 {
-			 URL url = CheckersMain.class.getResource("/resources/rbg.png");
-			 bg = ImageIO.read(url);
-		 } 
-		 catch (Exception e) 
-		 {
-			 e.printStackTrace();
-		 }
-		 g.drawImage(bg, 0, 0, canvasWidth, canvasHeight, null);
-         for (int row = 0; row < ROWS; ++row) 
-         {
-            for (int col = 0; col < COLS; ++col) 
-            {
-               int x1 = col * cellSize + cellPadding;
-               int y1 = row * cellSize + cellPadding;
-               /*Grid Lines
-               if((row%2 != 0 && col%2 != 0) || (row%2 == 0 && col%2 == 0))
-               {
-            	   g2d.setColor(Color.LIGHT_GRAY);
-                   g2d.fillRect(x1-16, y1-16, symbolSize+32, symbolSize+32);          		
-               }
-               */
-               if (board[row][col] == Seed.redPlayer) 
-               {
-            	   //g2d.setColor(Color.RED); Red painted Symbol
-                   //g2d.fillOval(x1, y1, symbolSize, symbolSize);
-                   BufferedImage img = null;
-					try {
-						URL url = CheckersMain.class.getResource("/resources/red.png");
-						img = ImageIO.read(url);
-					} catch (Exception e) {
-						e.printStackTrace();
-					}
-					g2d.drawImage(img, x1, y1, symbolSize, symbolSize, null);
-               }  
-               else if (board[row][col] == Seed.blackPlayer) 
-               {
-            	   //g2d.setColor(Color.BLACK); Black painted Symbol
-                   //g2d.fillOval(x1, y1, symbolSize, symbolSize);
-            	   BufferedImage img = null;
-					try {
-						URL url = CheckersMain.class.getResource("/resources/black.png");
-						img = ImageIO.read(url);
-					} catch (Exception e) {
-						e.printStackTrace();
-					}
-					g2d.drawImage(img, x1, y1, symbolSize, symbolSize, null);
-               }
-               else if (board[row][col] == Seed.redKing) 
-               {
-            	   /*
-            	   g2d.setColor(Color.RED); Red painted King
-                   g2d.fillOval(x1, y1, symbolSize, symbolSize);
-                   g2d.setColor(Color.YELLOW);
-                   g2d.drawLine(x1+15, y1+35, x1+35, y1+20);
-                   g2d.drawLine(x1+35, y1+20, x1+55, y1+35);
-                   g2d.drawLine(x1+55, y1+35, x1+15, y1+35);
-                   */
-            	   BufferedImage img = null;
-					try {
-						URL url = CheckersMain.class.getResource("/resources/redKing.png");
-						img = ImageIO.read(url);
-					} catch (Exception e) {
-						e.printStackTrace();
-					}
-					g2d.drawImage(img, x1, y1, symbolSize, symbolSize, null);
-               }
-               else if (board[row][col] == Seed.blackKing) 
-               {
-            	   /*
-            	   g2d.setColor(Color.BLACK); Black painted King
-                   g2d.fillOval(x1, y1, symbolSize, symbolSize);
-                   g2d.setColor(Color.YELLOW);
-                   g2d.drawLine(x1+15, y1+35, x1+35, y1+20);
-                   g2d.drawLine(x1+35, y1+20, x1+55, y1+35);
-                   g2d.drawLine(x1+55, y1+35, x1+15, y1+35);
-                   */
-            	   BufferedImage img = null;
-					try {
-						URL url = CheckersMain.class.getResource("/resources/blackKing.png");
-						img = ImageIO.read(url);
-					} catch (Exception e) {
-						e.printStackTrace();
-					}
-					g2d.drawImage(img, x1, y1, symbolSize, symbolSize, null);
-               }
-            }
-         }
-         
-         // Draw the grid-lines for when not using pictures
-         /*
-         g.setColor(Color.GRAY);
-         for (int row = 1; row < ROWS; ++row) 
-         {
-            g.fillRoundRect(0, cellSize * row - gridWidthHalf,
-                  canvasWidth, gridWidth, gridWidth, gridWidth);
-         }
-         for (int col = 1; col < COLS; ++col) 
-         {
-            g.fillRoundRect(cellSize * col - gridWidthHalf, 0,
-                  gridWidth, canvasHeight, gridWidth, gridWidth);
-         }
-         */
-
-         // Print status-bar message
-         if (currentState == GameState.playing) 
-         {            
-            if (currentPlayer == Seed.redPlayer)
-            {
-               statusBar.setForeground(Color.RED);
-               if(jumps != 0)
-            	   statusBar.setText("Red Has To Jump Again");
-               else if(canJump())
-            	   statusBar.setText("Red Has To Jump");
-               else
-            	   statusBar.setText("Red's Turn");
-            }
-            else 
-            {
-               statusBar.setForeground(Color.BLACK);
-               if(jumps != 0)
-            	   statusBar.setText("Black Has To Jump Again");
-               else if(canJump())
-            	   statusBar.setText("Black Has To Jump");
-               else
-            	   statusBar.setText("Black's Turn");
-            }
-         }
-         else if (currentState == GameState.redWon) 
-         {
-            statusBar.setForeground(Color.GREEN);
-            statusBar.setText("Red Won! Click to play again. This is a Zach McGuckin production.");
-         } 
-         else if (currentState == GameState.blackWon) 
-         {
-            statusBar.setForeground(Color.GREEN);
-            statusBar.setText("Black Won! Click to play again. This is a Zach McGuckin production.");
-         }
-      }
-   }
-
-   /** The entry main() method */
-   public static void main(String[] args) 
-   {
-      // Run GUI codes in the Event-Dispatching thread for thread safety
-      SwingUtilities.invokeLater(new Runnable() 
-      {
-         @Override
-         public void run() 
-         {
-            new CheckersMain(); // Let the constructor do the job
-         }
-      });
-   }
+import java.awt.*;
+import java.awt.event.*;
+import javax.swing.*;
+
+/**
+ * Simple Checkers game created using Java Swing Graphics.
+ * The rules and turn order live in Game; this class draws it and handles the mouse.
+ * With -variant international the board is 10x10 and the rules are those of
+ * VariantMoveGenerator, for two players at the board (the computer players only
+ * know English draughts).
+ *
+ * @author Zach McGuckin
+ *
+ */
+@SuppressWarnings("serial")
+public class CheckersMain extends JFrame 
+{
+   // The board is drawn this many pixels across whatever its number of cells
+   public static final int boardSize = 800;
+   private static final int BACKGROUND_CELLS = 8; // the background image is an 8x8 board
+   // The game board, rows by cols cells, set by the variant
+   private final int rows;
+   private final int cols;
+   // Dimensions used for graphics drawing, scaled to the board
+   private final int cellSize;      // cell width and height (square)
+   private final int canvasWidth;   // the drawing canvas
+   private final int canvasHeight;
+   public static final int gridWidth = 6;                   // Grid-line's width
+   public static final int gridWidthHalf = gridWidth / 2; // Grid-line's half-width
+   // Symbols (redPlayer/blackPlayer) are displayed inside a cell, with padding from border
+   private final int cellPadding;
+   private final int symbolSize; // width/height
+   public static final int symbolStrokeWidth = 8; // pen's stroke width
+   private static final BasicStroke symbolStroke =
+         new BasicStroke(symbolStrokeWidth, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+
+   // Use an enumeration (inner class) to represent the seeds and cell contents
+   public enum Seed 
+   {
+      empty, redPlayer, blackPlayer, redKing, blackKing
+   }
+   private boolean rightPlayer;  //checks if the right piece was chosen in relation to the player
+   
+   private int lastRow;
+   private int lastCol;  
+
+   private Game game; // the game being shown, or null when the variant is not English
+   private final Variant variant;
+   private VariantPosition variantPosition; // the game being shown when the variant is not English
+   private final long[] variantMoves = new long[VariantMoveGenerator.MAX_MOVES];
+   private int variantMoveCount;            // legal moves in variantPosition
+   private Seed[][] board; // Game board of rows-by-cols cells, kept in sync with the game for drawing
+   private DrawCanvas canvas; // Drawing canvas (JPanel) for the game board
+   private JLabel statusBar;  // Status Bar
+   private final FrameTimer frameTimer = new FrameTimer(); // paint time of the canvas
+   private static final Metrics.Timer PAINT = Metrics.timer("gui.paint");
+   private static final Metrics.Timer MOUSE = Metrics.timer("gui.mouseReleased"); // handling a move made with the mouse
+
+   // Computer player settings, a limit <= 0 is not used
+   private final boolean redComputer;
+   private final boolean blackComputer;
+   private final int searchDepth;
+   private final long searchMillis;
+   private final int searchThreads;
+   private final TranspositionTable table; // kept from move to move within a game
+   private final Tablebase tablebase;      // endgame tables, or null
+   private final OpeningBook book;         // opening moves played without searching, or null
+   private final Evaluator evaluator;      // the search's evaluation, or null for the default
+   private final java.util.Random bookRandom = new java.util.Random();
+   private final boolean pondering;        // search the expected reply while the human thinks
+   private ParallelSearch search;  // search running for the computer, if any
+   private SwingWorker<Search.Result, Void> thinker;
+   private Search.Result lastResult; // last move the computer found
+
+   // Pondering: while the human thinks, the computer searches the position after the reply it expects
+   private ParallelSearch ponderSearch;
+   private SwingWorker<Search.Result, Void> ponderer;
+   private long ponderHash;      // the expected position
+   private long ponderStart;
+   private int ponders;          // human moves made while pondering
+   private int ponderHits;       // of those, the ones that were expected
+   private long ponderSavedMillis;
+   private static final Metrics.Counter PONDER_MOVES = Metrics.counter("ponder.moves");
+   private static final Metrics.Counter PONDER_HITS = Metrics.counter("ponder.hits");
+   private static final Metrics.Counter PONDER_SAVED = Metrics.counter("ponder.savedMillis");
+   static
+   {
+      Metrics.rate("ponder.hitRate", "ponder.hits", "ponder.moves", 1);
+   }
+
+   /** Constructor to setup a two player game and the GUI components */
+   public CheckersMain() 
+   {
+      this(false, false, 0, 0, 1, 1, null, null, null, false, Variant.ENGLISH);
+   }
+
+   /** Constructor to setup a game where either side may be played by the computer */
+   public CheckersMain(boolean redComputer, boolean blackComputer, int searchDepth, long searchMillis, int hashMegabytes,
+         int searchThreads, Tablebase tablebase, OpeningBook book, Evaluator evaluator, boolean pondering, Variant variant) 
+   {
+      this.variant = variant;
+      rows = variant.size;
+      cols = variant.size;
+      cellSize = boardSize / Math.max(rows, cols);
+      canvasWidth = cellSize * cols;
+      canvasHeight = cellSize * rows;
+      cellPadding = cellSize / 6;
+      symbolSize = cellSize - cellPadding * 2;
+      this.redComputer = redComputer;
+      this.blackComputer = blackComputer;
+      this.searchDepth = searchDepth;
+      this.searchMillis = searchMillis;
+      this.searchThreads = searchThreads;
+      this.table = new TranspositionTable(hashMegabytes);
+      this.tablebase = tablebase;
+      this.book = book;
+      this.evaluator = evaluator;
+      this.pondering = pondering && redComputer != blackComputer;
+
+      canvas = new DrawCanvas();  // Construct a drawing canvas (a JPanel)
+      canvas.setPreferredSize(new Dimension(canvasWidth, canvasHeight));
+      canvas.setBackground(Color.WHITE); // set its background color
+
+      // The canvas (JPanel) fires a MouseEvent upon mouse-click
+      canvas.addMouseListener(new MouseAdapter() 
+      {
+         //@Override
+         public void mousePressed(MouseEvent e) // mouse-clicked handler
+         {
+        	//if the game is going
+            if (!isOver()) {
+            	if (isComputer(currentPlayer()))
+            		return; // wait for the computer's move
+            	int mouseX = e.getX();
+                int mouseY = e.getY();
+                // Get the row and column clicked
+                int rSelected = mouseY / cellSize;
+                int cSelected = mouseX / cellSize;
+            	if (rSelected >= 0 && rSelected < rows && cSelected >= 0 && cSelected < cols) {
+            		if(currentPlayer() == Seed.blackPlayer && (board[rSelected][cSelected] == Seed.blackPlayer || board[rSelected][cSelected] == Seed.blackKing)
+            				|| currentPlayer() == Seed.redPlayer && (board[rSelected][cSelected]== Seed.redPlayer || board[rSelected][cSelected] == Seed.redKing)){
+            			//The player picked their own piece
+            			rightPlayer = true;
+            			//Keep that information of where the piece was
+            			lastRow = rSelected;
+            			lastCol = cSelected;
+            		}
+                } 
+            } 
+            else        // game over
+               initGame(); // restart the game
+         }
+         public void mouseReleased(MouseEvent e) 
+         {  // mouse-released handler
+            long t = MOUSE.start();
+            if (!isOver()) 
+            {
+               int mouseX = e.getX();
+               int mouseY = e.getY();
+               // Get the row and column released on
+               int rReleased = mouseY / cellSize;
+               int cReleased = mouseX / cellSize;
+               int from = variant.square(lastRow, lastCol);
+               int to = variant.square(rReleased, cReleased);
+               if (rightPlayer && from >= 0 && to >= 0 && variantPosition != null)
+                  applyVariantMove(from, to);
+               else if (rightPlayer && from >= 0 && to >= 0) 
+               {
+                  // Only moves listed by the game are legal, so jumps stay mandatory
+                  int move = game.find(from, to);
+                  if (move != Move.NONE) 
+                     applyMove(move);
+               }
+            }
+            
+            // syncBoard() has queued repaints for just the squares the move changed
+            startComputer();
+            MOUSE.stop(t);
+         }
+      });
+
+      addWindowListener(new WindowAdapter()
+      {
+         @Override
+         public void windowClosing(WindowEvent e)
+         {
+            System.out.println("Canvas: " + frameTimer);
+         }
+      });
+
+      // Setup the status bar (JLabel) to display status message
+      statusBar = new JLabel("  ");
+      statusBar.setFont(new Font(Font.DIALOG_INPUT, Font.BOLD, 15));
+      statusBar.setBorder(BorderFactory.createEmptyBorder(2, 5, 4, 5));
+
+      Container cp = getContentPane();
+      cp.setLayout(new BorderLayout());
+      cp.add(canvas, BorderLayout.CENTER);
+      cp.add(statusBar, BorderLayout.PAGE_END); // same as SOUTH
+
+      setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+      pack();  // pack all the components in this JFrame
+      setTitle((variant == Variant.ENGLISH) ? "Checkers" : "International Draughts");
+      setVisible(true);  // show this JFrame
+
+      board = new Seed[rows][cols]; // allocate array
+      initGame(); // initialize the game board contents and game variables
+   }
+
+   /** Initialize the game-board contents and the status */
+   public void initGame() 
+   {
+      if (game != null && game.moveCount() > 0)
+         System.out.println("Canvas: " + frameTimer);
+      frameTimer.reset();
+      if (variant == Variant.ENGLISH)
+         game = new Game(); // red on rows 0-2, black on rows 5-7, redPlayer plays first
+      else
+      {
+         game = null;
+         variantPosition = VariantPosition.start(variant);
+         variantMoveCount = VariantMoveGenerator.generate(variantPosition, variantMoves);
+      }
+      syncBoard();
+      rightPlayer = false;
+
+      // Drop any search still running for the previous game, waiting for it before the table is cleared
+      if (thinker != null)
+      {
+         SwingWorker<Search.Result, Void> old = thinker;
+         thinker = null; // its done() finds it was dropped
+         finish(old, search);
+      }
+      stopPondering();
+      lastResult = null;
+      table.clear();
+      startComputer();
+   }
+
+   /** Play a legal move for the current player */
+   private void applyMove(int move) 
+   {
+      int side = game.sideToMove();
+      game.play(move); // moves, captures and kings the piece
+      syncBoard();
+      //If the same piece can jump again the player keeps the turn and their selection
+      if (game.sideToMove() != side)
+         rightPlayer = false;
+   }
+
+   /** Play the legal move of the variant from "from" to "to", if there is one; a whole capture is one move */
+   private void applyVariantMove(int from, int to) 
+   {
+      for (int i = 0; i < variantMoveCount; ++i)
+      {
+         long move = variantMoves[i];
+         if (VariantMove.from(move) == from && VariantMove.to(move) == to)
+         {
+            variantPosition.play(move);
+            variantMoveCount = VariantMoveGenerator.generate(variantPosition, variantMoves);
+            syncBoard();
+            rightPlayer = false;
+            return;
+         }
+      }
+   }
+
+   /** The player whose turn it is */
+   private Seed currentPlayer() 
+   {
+      int side = (variantPosition != null) ? variantPosition.sideToMove() : game.sideToMove();
+      return (side == Position.RED) ? Seed.redPlayer : Seed.blackPlayer;
+   }
+
+   private GameState state() 
+   {
+      if (variantPosition == null)
+         return game.state();
+      if (variantMoveCount > 0)
+         return GameState.playing;
+      // A side with no move left loses
+      return (variantPosition.sideToMove() == Position.RED) ? GameState.blackWon : GameState.redWon;
+   }
+
+   private boolean isOver() 
+   {
+      return state() != GameState.playing;
+   }
+
+   private boolean mustJump() 
+   {
+      if (variantPosition == null)
+         return game.mustJump();
+      return variantMoveCount > 0 && VariantMove.isCapture(variantMoves[0]);
+   }
+
+   private int chainJumps() 
+   {
+      return (variantPosition == null) ? game.chainJumps() : 0; // a variant capture is played in one go
+   }
+
+   /** Return true if the player with "theSeed" is played by the computer */
+   private boolean isComputer(Seed theSeed) 
+   {
+      return (theSeed == Seed.redPlayer) ? redComputer : blackComputer;
+   }
+
+   /** If it is the computer's turn, search for its move on a worker thread so the EDT stays free */
+   private void startComputer() 
+   {
+      if (variantPosition != null)
+      {
+         updateStatus(); // two players at the board
+         return;
+      }
+      if (game.isOver() || !isComputer(currentPlayer()) || thinker != null)
+      {
+         if (game.isOver())
+            stopPondering(); // the human's move ended the game
+         else if (!isComputer(currentPlayer()))
+            startPondering();
+         updateStatus();
+         return;
+      }
+      // A book move is played straight away
+      int bookMove = (book == null) ? Move.NONE : book.probe(game.position(), bookRandom);
+      if (bookMove != Move.NONE)
+      {
+         stopPondering();
+         System.out.println((currentPlayer() == Seed.redPlayer ? "Red: " : "Black: ") + "book " + Move.toString(bookMove));
+         applyMove(bookMove);
+         startComputer();
+         return;
+      }
+      final Position snapshot = new Position(game.position());
+      long millis = searchMillis;
+      if (ponderer != null)
+      {
+         boolean hit = ponderHash == snapshot.hash();
+         long pondered = System.currentTimeMillis() - ponderStart;
+         Search.Result finished = null;
+         if (hit && ponderer.isDone())
+         {
+            try
+            {
+               finished = ponderer.get();
+            }
+            catch (Exception e)
+            {
+               e.printStackTrace();
+            }
+         }
+         stopPondering();
+         long saved = 0;
+         if (finished != null)
+            saved = finished.millis; // the whole search is already done
+         else if (hit && searchMillis > 0)
+         {
+            // The table holds the search so far, so a shorter search gets as deep
+            millis = Math.max(searchMillis - pondered, searchMillis / 10);
+            saved = searchMillis - millis;
+         }
+         else if (hit)
+            saved = pondered; // a fixed depth is reached sooner by about this much
+         recordPonder(hit, saved);
+         if (finished != null && finished.move != Move.NONE)
+         {
+            play(finished, snapshot);
+            return;
+         }
+      }
+      search = new ParallelSearch(searchThreads, table, tablebase, evaluator);
+      final long budget = millis;
+      thinker = new SwingWorker<Search.Result, Void>() 
+      {
+         @Override
+         protected Search.Result doInBackground() 
+         {
+            return search.search(snapshot, searchDepth, budget);
+         }
+
+         @Override
+         protected void done() 
+         {
+            if (thinker != this)
+               return; // cancelled by a restart
+            thinker = null;
+            Search.Result result;
+            try 
+            {
+               result = get();
+            } 
+            catch (Exception e) 
+            {
+               e.printStackTrace();
+               return;
+            }
+            play(result, snapshot);
+         }
+      };
+      thinker.execute();
+      updateStatus();
+   }
+
+   /** Play the move the computer found for "snapshot" and carry on */
+   private void play(Search.Result result, Position snapshot) 
+   {
+      lastResult = result;
+      System.out.println((snapshot.sideToMove() == Position.RED ? "Red: " : "Black: ") + lastResult + ", " + table);
+      if (lastResult.move == Move.NONE)
+      {
+         updateStatus();
+         return; // no legal move to play
+      }
+      applyMove(lastResult.move);
+      startComputer(); // the rest of a multi-jump, or a computer opponent
+   }
+
+   /** At the start of the human's turn, search the position after the reply the table expects */
+   private void startPondering() 
+   {
+      if (!pondering || ponderer != null || game.chainJumps() != 0)
+         return;
+      final Position expected = new Position(game.position());
+      int side = expected.sideToMove();
+      int[] moves = new int[MoveGenerator.MAX_MOVES];
+      // Follow the table's best moves through the human's whole turn, multi-jumps included
+      while (expected.sideToMove() == side)
+      {
+         int move = TranspositionTable.move(table.probe(expected.hash()));
+         int n = MoveGenerator.generate(expected, moves);
+         boolean legal = false;
+         for (int i = 0; i < n && !legal; ++i)
+            legal = moves[i] == move;
+         if (move == Move.NONE || !legal)
+            return; // no prediction
+         expected.play(move);
+      }
+      if (MoveGenerator.generate(expected, moves) == 0)
+         return; // the reply would end the game
+
+      ponderHash = expected.hash();
+      ponderStart = System.currentTimeMillis();
+      final ParallelSearch s = new ParallelSearch(searchThreads, table, tablebase, evaluator);
+      // Without a fixed depth, stop on our own if the human takes a long time
+      final long limit = (searchMillis > 0) ? searchMillis * 10 : 0;
+      ponderSearch = s;
+      ponderer = new SwingWorker<Search.Result, Void>() 
+      {
+         @Override
+         protected Search.Result doInBackground() 
+         {
+            return s.search(expected, searchDepth, limit);
+         }
+      };
+      ponderer.execute();
+   }
+
+   /** Stop pondering and wait for the search to return, so it no longer writes to the table */
+   private void stopPondering() 
+   {
+      if (ponderer == null)
+         return;
+      finish(ponderer, ponderSearch);
+      ponderer = null;
+      ponderSearch = null;
+   }
+
+   // Stop the search running on "worker" and wait until it has returned
+   private static void finish(SwingWorker<Search.Result, Void> worker, ParallelSearch s) 
+   {
+      while (true)
+      {
+         s.stop();
+         try
+         {
+            worker.get(50, java.util.concurrent.TimeUnit.MILLISECONDS);
+            return;
+         }
+         catch (java.util.concurrent.TimeoutException e)
+         {
+            // Not started yet, and starting clears a stop, so ask again
+         }
+         catch (java.util.concurrent.CancellationException e)
+         {
+            return;
+         }
+         catch (java.util.concurrent.ExecutionException e)
+         {
+            e.printStackTrace();
+            return;
+         }
+         catch (InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+            return;
+         }
+      }
+   }
+
+   private void recordPonder(boolean hit, long savedMillis) 
+   {
+      ++ponders;
+      PONDER_MOVES.increment();
+      if (hit)
+      {
+         ++ponderHits;
+         ponderSavedMillis += savedMillis;
+         PONDER_HITS.increment();
+         PONDER_SAVED.add(savedMillis);
+      }
+      System.out.printf("Ponder %s, %d ms saved; %d/%d hits (%.0f%%), %.0f ms saved per move%n", hit ? "hit" : "miss",
+            savedMillis, ponderHits, ponders, 100.0 * ponderHits / ponders, (double) ponderSavedMillis / ponders);
+   }
+
+   /** Copy the game's position into board[][] for drawing and repaint the squares that changed */
+   private void syncBoard() 
+   {
+      long red, black, kings;
+      if (variantPosition != null)
+      {
+         red = variantPosition.red();
+         black = variantPosition.black();
+         kings = variantPosition.kings();
+      }
+      else
+      {
+         Position position = game.position();
+         red = position.red() & 0xFFFFFFFFL;
+         black = position.black() & 0xFFFFFFFFL;
+         kings = position.kings() & 0xFFFFFFFFL;
+      }
+      for (int row = 0; row < rows; ++row)
+      {
+         for (int col = 0; col < cols; ++col) 
+         {
+            int square = variant.square(row, col); // the same squares as Bitboard for English draughts
+            long bit = (square >= 0) ? 1L << square : 0;
+            boolean king = (kings & bit) != 0;
+            Seed seed;
+            if ((red & bit) != 0)
+               seed = king ? Seed.redKing : Seed.redPlayer;
+            else if ((black & bit) != 0)
+               seed = king ? Seed.blackKing : Seed.blackPlayer;
+            else
+               seed = Seed.empty;
+            if (board[row][col] != seed)
+            {
+               board[row][col] = seed;
+               canvas.repaint(col * cellSize, row * cellSize, cellSize, cellSize);
+            }
+         }
+      }
+   }
+
+   /**
+    *  Inner class DrawCanvas (extends JPanel) used for custom graphics drawing.
+    */
+   class DrawCanvas extends JPanel 
+   {
+      //@Override
+      public void paintComponent(Graphics g) // invoke via repaint()
+      {  
+         long start = System.nanoTime();
+         super.paintComponent(g);    // fill background
+
+         // Only the cells inside the clip were changed; repaint() is usually called for single cells
+         Rectangle clip = g.getClipBounds();
+         if (clip == null)
+            clip = new Rectangle(0, 0, canvasWidth, canvasHeight);
+         int firstRow = Math.max(0, clip.y / cellSize);
+         int lastRow = Math.min(rows - 1, (clip.y + clip.height - 1) / cellSize);
+         int firstCol = Math.max(0, clip.x / cellSize);
+         int lastCol = Math.min(cols - 1, (clip.x + clip.width - 1) / cellSize);
+
+         // Draw the Seeds of all the cells if they are not empty
+         // Use Graphics2D
+         Graphics2D g2d = (Graphics2D)g;
+         g2d.setStroke(symbolStroke);  // Graphics2D only
+         // The background is a pre-scaled screen-compatible image; copy just the part under the clip
+         Image background = SpriteCache.get(SpriteCache.Sprite.background, cellSize * BACKGROUND_CELLS,
+               cellSize * BACKGROUND_CELLS);
+         if (rows == BACKGROUND_CELLS && cols == BACKGROUND_CELLS)
+            g.drawImage(background, clip.x, clip.y, clip.x + clip.width, clip.y + clip.height,
+                  clip.x, clip.y, clip.x + clip.width, clip.y + clip.height, null);
+         else
+         {
+            // A bigger board repeats the image's cells, which keeps the colours of the squares
+            for (int row = firstRow; row <= lastRow; ++row) 
+            {
+               for (int col = firstCol; col <= lastCol; ++col) 
+               {
+                  int sx = (col % BACKGROUND_CELLS) * cellSize;
+                  int sy = (row % BACKGROUND_CELLS) * cellSize;
+                  g.drawImage(background, col * cellSize, row * cellSize, (col + 1) * cellSize, (row + 1) * cellSize,
+                        sx, sy, sx + cellSize, sy + cellSize, null);
+               }
+            }
+         }
+         for (int row = firstRow; row <= lastRow; ++row) 
+         {
+            for (int col = firstCol; col <= lastCol; ++col) 
+            {
+               int x1 = col * cellSize + cellPadding;
+               int y1 = row * cellSize + cellPadding;
+               /*Grid Lines
+               if((row%2 != 0 && col%2 != 0) || (row%2 == 0 && col%2 == 0))
+               {
+            	   g2d.setColor(Color.LIGHT_GRAY);
+                   g2d.fillRect(x1-16, y1-16, symbolSize+32, symbolSize+32);          		
+               }
+               */
+               if (board[row][col] == Seed.redPlayer) 
+               {
+            	   //g2d.setColor(Color.RED); Red painted Symbol
+                   //g2d.fillOval(x1, y1, symbolSize, symbolSize);
+                   g2d.drawImage(SpriteCache.get(SpriteCache.Sprite.red, symbolSize, symbolSize), x1, y1, null);
+               }  
+               else if (board[row][col] == Seed.blackPlayer) 
+               {
+            	   //g2d.setColor(Color.BLACK); Black painted Symbol
+                   //g2d.fillOval(x1, y1, symbolSize, symbolSize);
+            	   g2d.drawImage(SpriteCache.get(SpriteCache.Sprite.black, symbolSize, symbolSize), x1, y1, null);
+               }
+               else if (board[row][col] == Seed.redKing) 
+               {
+            	   /*
+            	   g2d.setColor(Color.RED); Red painted King
+                   g2d.fillOval(x1, y1, symbolSize, symbolSize);
+                   g2d.setColor(Color.YELLOW);
+                   g2d.drawLine(x1+15, y1+35, x1+35, y1+20);
+                   g2d.drawLine(x1+35, y1+20, x1+55, y1+35);
+                   g2d.drawLine(x1+55, y1+35, x1+15, y1+35);
+                   */
+            	   g2d.drawImage(SpriteCache.get(SpriteCache.Sprite.redKing, symbolSize, symbolSize), x1, y1, null);
+               }
+               else if (board[row][col] == Seed.blackKing) 
+               {
+            	   /*
+            	   g2d.setColor(Color.BLACK); Black painted King
+                   g2d.fillOval(x1, y1, symbolSize, symbolSize);
+                   g2d.setColor(Color.YELLOW);
+                   g2d.drawLine(x1+15, y1+35, x1+35, y1+20);
+                   g2d.drawLine(x1+35, y1+20, x1+55, y1+35);
+                   g2d.drawLine(x1+55, y1+35, x1+15, y1+35);
+                   */
+            	   g2d.drawImage(SpriteCache.get(SpriteCache.Sprite.blackKing, symbolSize, symbolSize), x1, y1, null);
+               }
+            }
+         }
+         
+         // Draw the grid-lines for when not using pictures
+         /*
+         g.setColor(Color.GRAY);
+         for (int row = 1; row < rows; ++row) 
+         {
+            g.fillRoundRect(0, cellSize * row - gridWidthHalf,
+                  canvasWidth, gridWidth, gridWidth, gridWidth);
+         }
+         for (int col = 1; col < cols; ++col) 
+         {
+            g.fillRoundRect(cellSize * col - gridWidthHalf, 0,
+                  gridWidth, canvasHeight, gridWidth, gridWidth);
+         }
+         */
+
+         frameTimer.record(System.nanoTime() - start, (long) clip.width * clip.height);
+         PAINT.record(System.nanoTime() - start);
+      }
+   }
+
+   /** Show whose turn it is, or who won, in the status bar */
+   private void updateStatus() 
+   {
+      GameState state = state();
+      if (state == GameState.playing) 
+      {            
+         if (currentPlayer() == Seed.redPlayer)
+         {
+            statusBar.setForeground(Color.RED);
+            if(thinker != null)
+         	   statusBar.setText("Red Is Thinking");
+            else if(chainJumps() != 0)
+         	   statusBar.setText("Red Has To Jump Again");
+            else if(mustJump())
+         	   statusBar.setText("Red Has To Jump");
+            else
+         	   statusBar.setText("Red's Turn");
+         }
+         else 
+         {
+            statusBar.setForeground(Color.BLACK);
+            if(thinker != null)
+         	   statusBar.setText("Black Is Thinking");
+            else if(chainJumps() != 0)
+         	   statusBar.setText("Black Has To Jump Again");
+            else if(mustJump())
+         	   statusBar.setText("Black Has To Jump");
+            else
+         	   statusBar.setText("Black's Turn");
+         }
+      }
+      else if (state == GameState.redWon) 
+      {
+         statusBar.setForeground(Color.GREEN);
+         statusBar.setText("Red Won! Click to play again. This is a Zach McGuckin production.");
+      } 
+      else if (state == GameState.blackWon) 
+      {
+         statusBar.setForeground(Color.GREEN);
+         statusBar.setText("Black Won! Click to play again. This is a Zach McGuckin production.");
+      }
+      else if (state == GameState.draw) 
+      {
+         statusBar.setForeground(Color.GREEN);
+         statusBar.setText("It's a Draw! Click to play again. This is a Zach McGuckin production.");
+      }
+   }
+
+   /**
+    * The entry main() method.
+    * Options: -computer red|black|both, -depth plies, -time milliseconds per move (default 1000),
+    * -hash transposition table megabytes (default 64), -threads search threads (default 1),
+    * -tablebase directory of endgame tables written by TablebaseGenerator,
+    * -book opening book written by OpeningBookBuilder,
+    * -eval weights file for PieceSquareEvaluator, network file (*.nn) for NetworkEvaluator,
+    *    or "material" to count material only,
+    * -ponder on to search on the human's time when playing the computer,
+    * -variant english (default) or international for 10x10 draughts between two players.
+    */
+   public static void main(String[] args) 
+   {
+      boolean red = false;
+      boolean black = false;
+      int depth = 0;
+      long millis = 1000;
+      int hash = 64;
+      int threads = 1;
+      Tablebase tb = null;
+      OpeningBook openings = null;
+      Evaluator eval = null;
+      boolean ponder = false;
+      Variant rules = Variant.ENGLISH;
+      for (int i = 0; i + 1 < args.length; i += 2) 
+      {
+         if (args[i].equals("-computer")) 
+         {
+            red = args[i + 1].equals("red") || args[i + 1].equals("both");
+            black = args[i + 1].equals("black") || args[i + 1].equals("both");
+         }
+         else if (args[i].equals("-depth"))
+            depth = Integer.parseInt(args[i + 1]);
+         else if (args[i].equals("-time"))
+            millis = Long.parseLong(args[i + 1]);
+         else if (args[i].equals("-hash"))
+            hash = Integer.parseInt(args[i + 1]);
+         else if (args[i].equals("-threads"))
+            threads = Integer.parseInt(args[i + 1]);
+         else if (args[i].equals("-tablebase"))
+         {
+            try
+            {
+               tb = Tablebase.open(new java.io.File(args[i + 1]));
+               System.out.println("Tablebase: " + tb.tables() + " tables, up to " + tb.maxPieces() + " pieces");
+            }
+            catch (java.io.IOException e)
+            {
+               System.err.println("Cannot open tablebase: " + e.getMessage());
+            }
+         }
+         else if (args[i].equals("-book"))
+         {
+            try
+            {
+               openings = OpeningBook.open(new java.io.File(args[i + 1]));
+               System.out.println("Opening book: " + openings.size() + " moves");
+            }
+            catch (java.io.IOException e)
+            {
+               System.err.println("Cannot open opening book: " + e.getMessage());
+            }
+         }
+         else if (args[i].equals("-ponder"))
+            ponder = args[i + 1].equals("on");
+         else if (args[i].equals("-variant"))
+            rules = Variant.parse(args[i + 1]);
+         else if (args[i].equals("-eval"))
+         {
+            try
+            {
+               eval = Evaluator.load(args[i + 1]);
+               System.out.println("Evaluation: " + eval);
+            }
+            catch (java.io.IOException e)
+            {
+               System.err.println("Cannot read evaluation weights: " + e.getMessage());
+            }
+         }
+      }
+      // A fixed depth on its own is not cut short by the default time budget
+      if (depth > 0 && !java.util.Arrays.asList(args).contains("-time"))
+         millis = 0;
+      if (rules != Variant.ENGLISH && (red || black))
+      {
+         System.err.println("The computer only plays English draughts; " + rules + " is for two players");
+         red = false;
+         black = false;
+      }
+
+      final boolean redComputer = red;
+      final boolean blackComputer = black;
+      final int searchDepth = depth;
+      final long searchMillis = millis;
+      final int hashMegabytes = hash;
+      final int searchThreads = threads;
+      final Tablebase tablebase = tb;
+      final OpeningBook book = openings;
+      final Evaluator evaluator = eval;
+      final boolean pondering = ponder;
+      final Variant variant = rules;
+      // Run GUI codes in the Event-Dispatching thread for thread safety
+      SwingUtilities.invokeLater(new Runnable() 
+      {
+         @Override
+         public void run() 
+         {
+            new CheckersMain(redComputer, blackComputer, searchDepth, searchMillis, hashMegabytes, searchThreads, tablebase, book, evaluator, pondering, variant); // Let the constructor do the job
+         }
+      });
+   }
 }
\ No newline at end of file
@@ -0,0 +1,149 @@
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Benchmark for the evaluators: walks the full move tree of the SmpBenchmark
+ * positions to a fixed depth, as perft does, and evaluates every node on the
+ * way. Reports evaluations per second for MaterialEvaluator, and for
+ * PieceSquareEvaluator and a NetworkEvaluator (when a network file is given)
+ * both with their incremental state and rescanning the board, and the time
+ * each evaluation adds to the bare walk (for the incremental ones that
+ * includes keeping the state up to date in makeMove). Also checks that the
+ * incremental scores always match a rescan. For strength, play the
+ * evaluators against each other with Tournament.
+ *
+ * Usage: java EvalBenchmark [depth] [iterations] [weights file] [network file]
+ *
+ * @author Zach McGuckin
+ *
+ */
+public class EvalBenchmark
+{
+   private static final int MAX_PLY = 256;
+
+   private final int[][] moves = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+   private long evaluations;
+
+   public static void main(String[] args) throws IOException
+   {
+      int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 8;
+      int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+      PieceSquareEvaluator pieceSquare = (args.length > 2) ? PieceSquareEvaluator.load(new File(args[2]))
+            : new PieceSquareEvaluator();
+      NetworkEvaluator network = (args.length > 3) ? NetworkEvaluator.load(new File(args[3])) : null;
+      System.out.println("depth " + depth + ", weights " + pieceSquare + (network == null ? "" : ", " + network));
+
+      Position[] positions = new Position[SmpBenchmark.POSITIONS.length];
+      for (int i = 0; i < positions.length; ++i)
+      {
+         String fen = SmpBenchmark.POSITIONS[i];
+         positions[i] = fen.equals("start") ? Position.start() : Position.fromFen(fen);
+      }
+
+      EvalBenchmark bench = new EvalBenchmark();
+      if (!bench.check(positions, pieceSquare, depth) || network != null && !bench.check(positions, network, depth))
+      {
+         System.out.println("FAIL: the incremental score does not match a rescan");
+         System.exit(1);
+      }
+
+      Evaluator[] evaluators = { null, new MaterialEvaluator(), pieceSquare, pieceSquare, network, network };
+      String[] names = { "walk only", "material", "piece-square", "piece-square rescan", "network", "network rescan" };
+      double walkNanos = 0;
+      for (int e = 0; e < evaluators.length; ++e)
+      {
+         if (e > 0 && evaluators[e] == null)
+            continue;
+         boolean incremental = !names[e].endsWith("rescan");
+         for (int i = 0; i < 2; ++i)
+            bench.time(positions, evaluators[e], incremental, depth); // warm up
+         long nanos = 0;
+         for (int i = 0; i < iterations; ++i)
+            nanos += bench.time(positions, evaluators[e], incremental, depth);
+         double perIteration = (double) nanos / iterations;
+         if (e == 0)
+         {
+            walkNanos = perIteration;
+            System.out.printf("%-20s %10d nodes  %8.1f ms%n", names[e], bench.evaluations, perIteration / 1e6);
+            continue;
+         }
+         System.out.printf("%-20s %10d evals  %8.1f ms  %7.1f M evals/s  %5.1f ns/eval over the walk%n", names[e],
+               bench.evaluations, perIteration / 1e6, bench.evaluations * 1e3 / perIteration,
+               Math.max(0, perIteration - walkNanos) / bench.evaluations);
+      }
+   }
+
+   // One walk over every position; returns the nanoseconds it took
+   private long time(Position[] positions, Evaluator evaluator, boolean incremental, int depth)
+   {
+      evaluations = 0;
+      long sum = 0;
+      long start = System.nanoTime();
+      for (Position p : positions)
+      {
+         p.setSquareTable(null);
+         p.setFeatureWeights(null, null);
+         if (evaluator != null && incremental)
+            evaluator.prepare(p);
+         sum += walk(p, evaluator, depth, 0);
+      }
+      long nanos = System.nanoTime() - start;
+      if (sum == 42)
+         System.out.print(""); // keeps the evaluations from being optimised away
+      return nanos;
+   }
+
+   private long walk(Position p, Evaluator evaluator, int depth, int ply)
+   {
+      ++evaluations;
+      long sum = (evaluator == null) ? 0 : evaluator.evaluate(p);
+      if (depth == 0)
+         return sum;
+      int[] list = moves[ply];
+      int n = MoveGenerator.generate(p, list);
+      int side = p.sideToMove();
+      for (int i = 0; i < n; ++i)
+      {
+         p.makeMove(list[i]);
+         // The rest of a multi-jump belongs to the same move
+         sum += walk(p, evaluator, (p.sideToMove() == side) ? depth : depth - 1, ply + 1);
+         p.unmakeMove();
+      }
+      return sum;
+   }
+
+   // True if the incremental score matches a rescan at every node
+   private boolean check(Position[] positions, Evaluator evaluator, int depth)
+   {
+      for (Position p : positions)
+      {
+         evaluator.prepare(p);
+         if (!check(p, evaluator, Math.min(depth, 6), 0))
+            return false;
+      }
+      return true;
+   }
+
+   private boolean check(Position p, Evaluator evaluator, int depth, int ply)
+   {
+      Position rescan = new Position(p);
+      rescan.setSquareTable(null);
+      rescan.setFeatureWeights(null, null);
+      if (evaluator.evaluate(p) != evaluator.evaluate(rescan))
+         return false;
+      if (depth == 0)
+         return true;
+      int[] list = moves[ply];
+      int n = MoveGenerator.generate(p, list);
+      int side = p.sideToMove();
+      for (int i = 0; i < n; ++i)
+      {
+         p.makeMove(list[i]);
+         boolean ok = check(p, evaluator, (p.sideToMove() == side) ? depth : depth - 1, ply + 1);
+         p.unmakeMove();
+         if (!ok)
+            return false;
+      }
+      return true;
+   }
+}
@@ -0,0 +1,30 @@
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Static evaluation used by Search at the horizon. Implementations must be
+ * safe to share between search threads, so any per-position state belongs in
+ * the Position (see Position.setSquareTable and setFeatureWeights), attached
+ * by prepare().
+ *
+ * @author Zach McGuckin
+ *
+ */
+public interface Evaluator
+{
+   /** Get p ready to be evaluated through makeMove/unmakeMove; called once at the start of each search */
+   void prepare(Position p);
+
+   /** Score of p from the side to move's point of view, where a man is worth about 100 */
+   int evaluate(Position p);
+
+   /** "material", a network file ending in .nn, or a PieceSquareEvaluator weights file */
+   static Evaluator load(String spec) throws IOException
+   {
+      if (spec.equals("material"))
+         return new MaterialEvaluator();
+      if (spec.endsWith(".nn"))
+         return NetworkEvaluator.load(new File(spec));
+      return PieceSquareEvaluator.load(new File(spec));
+   }
+}
@@ -0,0 +1,53 @@
+/**
+ * Time spent painting, frame by frame, so changes to the drawing code can be
+ * checked against the EDT time they cost. Meant to be used on the EDT only.
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class FrameTimer
+{
+   private long frames;
+   private long totalNanos;
+   private long maxNanos;
+   private long pixels;
+
+   /** Count one frame that took "nanos" to paint an area of "pixels" */
+   public void record(long nanos, long pixels)
+   {
+      ++frames;
+      totalNanos += nanos;
+      maxNanos = Math.max(maxNanos, nanos);
+      this.pixels += pixels;
+   }
+
+   public long frames()
+   {
+      return frames;
+   }
+
+   public double meanMillis()
+   {
+      return (frames == 0) ? 0 : totalNanos / 1e6 / frames;
+   }
+
+   public double maxMillis()
+   {
+      return maxNanos / 1e6;
+   }
+
+   public void reset()
+   {
+      frames = 0;
+      totalNanos = 0;
+      maxNanos = 0;
+      pixels = 0;
+   }
+
+   @Override
+   public String toString()
+   {
+      return String.format("%d frames, mean %.3f ms, max %.3f ms, %d px/frame", frames, meanMillis(), maxMillis(),
+            (frames == 0) ? 0 : pixels / frames);
+   }
+}
@@ -0,0 +1,184 @@
+/**
+ * A game of checkers without any user interface: the position, whose turn it
+ * is, the moves played so far and whether the game is over. It does not touch
+ * AWT or Swing, so it can be created and played on a headless server.
+ *
+ * A move is one step (see Move). During a multi-jump the same side stays on
+ * move until the jumping piece has no jump left or is crowned.
+ *
+ * The game is drawn when a position comes up for the third time with the
+ * same side to move, or when both sides have made DEFAULT_MOVE_LIMIT moves
+ * without a capture or a man moving (the 40-move rule). Both can be changed
+ * with setDrawRules.
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class Game
+{
+   public static final int DEFAULT_MOVE_LIMIT = 40; // moves by each side with no capture or man move
+
+   private static final Metrics.Timer PLAY = Metrics.timer("game.play");   // checking and playing a move
+   private static final Metrics.Timer RULES = Metrics.timer("game.rules"); // legal moves and game over after it
+
+   private final Position start;
+   private final Position position;
+   private final int[] legal = new int[MoveGenerator.MAX_MOVES];
+   private int legalCount;
+   private GameState state;
+   private int chainJumps; // jumps made so far by the piece in a multi-jump
+   private int[] history = new int[256];
+   private int historyCount;
+   private boolean repetitionDraws = true;
+   private int moveLimit = DEFAULT_MOVE_LIMIT;
+
+   /** A game from the initGame() start position */
+   public Game()
+   {
+      this(Position.start());
+   }
+
+   /** A game from any position, which is copied */
+   public Game(Position start)
+   {
+      this.start = new Position(start);
+      position = new Position(start);
+      update();
+   }
+
+   /**
+    * Set the draw rules: whether a threefold repetition is a draw, and how
+    * many moves each side may make with no capture or man move before the
+    * game is drawn (0 for no limit). A game read from a record, where a
+    * draw has to be claimed, may play on with them off.
+    */
+   public void setDrawRules(boolean repetition, int moveLimit)
+   {
+      repetitionDraws = repetition;
+      this.moveLimit = moveLimit;
+      update();
+   }
+
+   /** A copy of the position the game started from */
+   public Position start()
+   {
+      return new Position(start);
+   }
+
+   /** The current position. Read it, but play moves through the game */
+   public Position position()
+   {
+      return position;
+   }
+
+   /** Position.RED or Position.BLACK */
+   public int sideToMove()
+   {
+      return position.sideToMove();
+   }
+
+   public GameState state()
+   {
+      return state;
+   }
+
+   public boolean isOver()
+   {
+      return state != GameState.playing;
+   }
+
+   /** Return true if the side to move has to jump */
+   public boolean mustJump()
+   {
+      return position.jumpers() != 0;
+   }
+
+   /** Number of jumps the side to move has made so far in the current multi-jump */
+   public int chainJumps()
+   {
+      return chainJumps;
+   }
+
+   /** Copy the legal moves into "moves" and return how many there are */
+   public int legalMoves(int[] moves)
+   {
+      System.arraycopy(legal, 0, moves, 0, legalCount);
+      return legalCount;
+   }
+
+   /** Return the legal moves as a new array */
+   public int[] legalMoves()
+   {
+      int[] moves = new int[legalCount];
+      System.arraycopy(legal, 0, moves, 0, legalCount);
+      return moves;
+   }
+
+   public boolean isLegal(int move)
+   {
+      for (int i = 0; i < legalCount; ++i)
+      {
+         if (legal[i] == move)
+            return true;
+      }
+      return false;
+   }
+
+   /** Return the legal move from square "from" to square "to", or Move.NONE */
+   public int find(int from, int to)
+   {
+      for (int i = 0; i < legalCount; ++i)
+      {
+         if (Move.from(legal[i]) == from && Move.to(legal[i]) == to)
+            return legal[i];
+      }
+      return Move.NONE;
+   }
+
+   /** Play a legal move for the side to move */
+   public void play(int move)
+   {
+      long t = PLAY.start();
+      if (isOver())
+         throw new IllegalStateException("The game is over: " + state);
+      if (!isLegal(move))
+         throw new IllegalArgumentException("Illegal move " + Move.toString(move) + " in " + position.toFen());
+      int side = position.sideToMove();
+      position.play(move);
+      chainJumps = (position.sideToMove() == side) ? chainJumps + 1 : 0;
+      if (historyCount == history.length)
+         history = java.util.Arrays.copyOf(history, historyCount * 2);
+      history[historyCount++] = move;
+      long rules = RULES.start();
+      update();
+      RULES.stop(rules);
+      PLAY.stop(t);
+   }
+
+   /** Number of moves played, counting each jump of a multi-jump */
+   public int moveCount()
+   {
+      return historyCount;
+   }
+
+   /** The i-th move played */
+   public int move(int i)
+   {
+      if (i < 0 || i >= historyCount)
+         throw new IndexOutOfBoundsException("Move " + i + " of " + historyCount);
+      return history[i];
+   }
+
+   // Refresh the legal moves and decide whether the side to move has lost or the game is drawn
+   private void update()
+   {
+      legalCount = MoveGenerator.generate(position, legal);
+      if (legalCount == 0)
+         state = (position.sideToMove() == Position.RED) ? GameState.blackWon : GameState.redWon;
+      else if (moveLimit > 0 && position.quietPlies() >= moveLimit * 2
+            || repetitionDraws && position.repetitions() >= 2)
+         state = GameState.draw;
+      else
+         state = GameState.playing;
+   }
+}
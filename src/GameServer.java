@@ -0,0 +1,391 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Game server: holds any number of game sessions in memory and serves them
+ * over a line protocol on non-blocking sockets. One thread accepts
+ * connections and hands them round-robin to worker threads (one per core by
+ * default), each running its own Selector. Moves go through Game, so they are
+ * checked by the same rules as a click on the board.
+ *
+ * Requests, one per line, and their replies:
+ *   NEW                 OK id fen state   start a game from the initial position
+ *   MOVE id from-to     OK id fen state   play one step, squares in standard numbering
+ *   MOVE id fromxto     OK id fen state   (a multi-jump is sent one jump at a time)
+ *   BOARD id            OK id fen state
+ *   MOVES id            OK id move...     the legal steps
+ *   END id              OK id             drop the game
+ * Errors are answered with "ERR message". A connection can only see the
+ * games it started, and they are dropped when it closes.
+ *
+ * Usage: java GameServer [-port n] [-threads n]
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class GameServer implements Closeable
+{
+   public static final int DEFAULT_PORT = 7070;
+   private static final int MAX_LINE = 256;
+   // Replies queued for a client past this many bytes stop its reads until it catches up
+   private static final int MAX_OUTPUT = 64 * 1024;
+
+   private final ServerSocketChannel server;
+   private final Selector acceptor;
+   private final Worker[] workers;
+   private final ConcurrentHashMap<Long, Game> sessions = new ConcurrentHashMap<Long, Game>();
+   private final AtomicLong nextId = new AtomicLong();
+   private final AtomicLong requests = new AtomicLong();
+   private static final Metrics.Timer REQUEST = Metrics.timer("server.request");
+
+   public GameServer(int port, int threads) throws IOException
+   {
+      server = ServerSocketChannel.open();
+      server.bind(new InetSocketAddress(port), 1024);
+      server.configureBlocking(false);
+      acceptor = Selector.open();
+      server.register(acceptor, SelectionKey.OP_ACCEPT);
+      workers = new Worker[threads];
+      for (int i = 0; i < threads; ++i)
+         workers[i] = new Worker(i);
+   }
+
+   public static void main(String[] args) throws IOException
+   {
+      int port = DEFAULT_PORT;
+      int threads = Runtime.getRuntime().availableProcessors();
+      for (int i = 0; i + 1 < args.length; i += 2)
+      {
+         if (args[i].equals("-port"))
+            port = Integer.parseInt(args[i + 1]);
+         else if (args[i].equals("-threads"))
+            threads = Integer.parseInt(args[i + 1]);
+         else
+            throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+      GameServer gameServer = new GameServer(port, threads);
+      System.out.println("Listening on port " + gameServer.port() + " with " + threads + " threads");
+      gameServer.run();
+   }
+
+   /** Port the server listens on */
+   public int port() throws IOException
+   {
+      return ((InetSocketAddress) server.getLocalAddress()).getPort();
+   }
+
+   /** Number of games in progress */
+   public int sessions()
+   {
+      return sessions.size();
+   }
+
+   /** Number of requests answered */
+   public long requests()
+   {
+      return requests.get();
+   }
+
+   /** Start the workers and accept connections until close() */
+   public void run() throws IOException
+   {
+      for (Worker w : workers)
+      {
+         Thread t = new Thread(w, "server-" + w.number);
+         t.setDaemon(true);
+         t.start();
+      }
+      int next = 0;
+      try
+      {
+         while (server.isOpen())
+         {
+            acceptor.select();
+            acceptor.selectedKeys().clear();
+            SocketChannel client;
+            while ((client = server.accept()) != null)
+            {
+               client.configureBlocking(false);
+               client.socket().setTcpNoDelay(true);
+               workers[next].add(client);
+               next = (next + 1) % workers.length;
+            }
+         }
+      }
+      catch (ClosedSelectorException e)
+      {
+         // closed
+      }
+   }
+
+   @Override
+   public void close() throws IOException
+   {
+      server.close();
+      acceptor.close();
+      for (Worker w : workers)
+         w.selector.close();
+   }
+
+   /** Answer one request line; "owned" lists the games of the connection it came on */
+   String handle(String line, Set<Long> owned)
+   {
+      long t = REQUEST.start();
+      String reply = answer(line, owned);
+      REQUEST.stop(t);
+      return reply;
+   }
+
+   private String answer(String line, Set<Long> owned)
+   {
+      requests.incrementAndGet();
+      String[] words = line.trim().split("\\s+");
+      String command = words[0].toUpperCase();
+      if (command.equals("NEW"))
+      {
+         long id = nextId.incrementAndGet();
+         Game game = new Game();
+         sessions.put(id, game);
+         owned.add(id);
+         return reply(id, game);
+      }
+      if (words.length < 2)
+         return "ERR missing game id";
+      long id;
+      try
+      {
+         id = Long.parseLong(words[1]);
+      }
+      catch (NumberFormatException e)
+      {
+         return "ERR bad game id " + words[1];
+      }
+      // Ids are sequential, so a connection may only touch the games it started
+      if (!owned.contains(id))
+         return "ERR no game " + id;
+      Game game = sessions.get(id);
+      if (game == null)
+         return "ERR no game " + id;
+
+      synchronized (game)
+      {
+         if (command.equals("BOARD"))
+            return reply(id, game);
+         if (command.equals("END"))
+         {
+            sessions.remove(id);
+            owned.remove(id);
+            return "OK " + id;
+         }
+         if (command.equals("MOVES"))
+         {
+            StringBuilder sb = new StringBuilder("OK ").append(id);
+            int[] moves = game.legalMoves();
+            for (int m : moves)
+               sb.append(' ').append(Move.notation(m));
+            return sb.toString();
+         }
+         if (command.equals("MOVE"))
+         {
+            if (words.length < 3)
+               return "ERR missing move";
+            if (game.isOver())
+               return "ERR game " + id + " is over";
+            int move = parse(game, words[2]);
+            if (move == Move.NONE)
+               return "ERR illegal move " + words[2];
+            game.play(move);
+            return reply(id, game);
+         }
+      }
+      return "ERR unknown command " + words[0];
+   }
+
+   private static String reply(long id, Game game)
+   {
+      return "OK " + id + " " + game.position().toFen() + " " + game.state();
+   }
+
+   // The legal step written as "from-to" or "fromxto", or Move.NONE
+   private static int parse(Game game, String text)
+   {
+      int separator = Math.max(text.indexOf('-'), text.indexOf('x'));
+      if (separator <= 0)
+         return Move.NONE;
+      try
+      {
+         int from = Bitboard.fromNumber(Integer.parseInt(text.substring(0, separator)));
+         int to = Bitboard.fromNumber(Integer.parseInt(text.substring(separator + 1)));
+         if (from < 0 || to < 0)
+            return Move.NONE;
+         int move = game.find(from, to);
+         return (move != Move.NONE && Move.isCapture(move) == (text.charAt(separator) == 'x')) ? move : Move.NONE;
+      }
+      catch (NumberFormatException e)
+      {
+         return Move.NONE;
+      }
+   }
+
+   /** State of one connection */
+   private static final class Connection
+   {
+      final ByteBuffer in = ByteBuffer.allocate(4096);
+      ByteBuffer out = ByteBuffer.allocate(4096);
+      final StringBuilder line = new StringBuilder();
+      final Set<Long> games = new HashSet<Long>();
+   }
+
+   /** One selector thread serving a share of the connections */
+   private final class Worker implements Runnable
+   {
+      final int number;
+      final Selector selector;
+      final Queue<SocketChannel> added = new ConcurrentLinkedQueue<SocketChannel>();
+
+      Worker(int number) throws IOException
+      {
+         this.number = number;
+         selector = Selector.open();
+      }
+
+      void add(SocketChannel channel)
+      {
+         added.add(channel);
+         selector.wakeup();
+      }
+
+      @Override
+      public void run()
+      {
+         try
+         {
+            while (selector.isOpen())
+            {
+               selector.select();
+               SocketChannel channel;
+               while ((channel = added.poll()) != null)
+                  channel.register(selector, SelectionKey.OP_READ, new Connection());
+               Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+               while (keys.hasNext())
+               {
+                  SelectionKey key = keys.next();
+                  keys.remove();
+                  try
+                  {
+                     if (key.isReadable())
+                        read(key);
+                     if (key.isValid() && key.isWritable())
+                        write(key);
+                  }
+                  catch (IOException e)
+                  {
+                     close(key);
+                  }
+               }
+            }
+         }
+         catch (ClosedSelectorException e)
+         {
+            // the server was closed
+         }
+         catch (IOException e)
+         {
+            e.printStackTrace();
+         }
+      }
+
+      private void read(SelectionKey key) throws IOException
+      {
+         SocketChannel channel = (SocketChannel) key.channel();
+         Connection c = (Connection) key.attachment();
+         if (channel.read(c.in) < 0)
+         {
+            close(key);
+            return;
+         }
+         c.in.flip();
+         while (c.in.hasRemaining())
+         {
+            char ch = (char) (c.in.get() & 0xFF);
+            if (ch == '\n')
+            {
+               if (c.line.length() > 0)
+                  respond(c, handle(c.line.toString(), c.games));
+               c.line.setLength(0);
+            }
+            else if (ch != '\r')
+            {
+               if (c.line.length() >= MAX_LINE)
+               {
+                  close(key);
+                  return;
+               }
+               c.line.append(ch);
+            }
+         }
+         c.in.clear();
+         write(key);
+      }
+
+      private void respond(Connection c, String reply)
+      {
+         byte[] bytes = (reply + "\n").getBytes(StandardCharsets.US_ASCII);
+         if (c.out.remaining() < bytes.length)
+         {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(c.out.capacity() * 2, c.out.position() + bytes.length));
+            c.out.flip();
+            bigger.put(c.out);
+            c.out = bigger;
+         }
+         c.out.put(bytes);
+      }
+
+      // Send what is queued; wait for OP_WRITE only while the socket is full, and stop reading
+      // while more than MAX_OUTPUT is queued so a client that never reads cannot grow c.out
+      // past that and the replies to one read buffer
+      private void write(SelectionKey key) throws IOException
+      {
+         Connection c = (Connection) key.attachment();
+         c.out.flip();
+         ((SocketChannel) key.channel()).write(c.out);
+         c.out.compact();
+         int queued = c.out.position();
+         if (queued > MAX_OUTPUT)
+            key.interestOps(SelectionKey.OP_WRITE);
+         else
+            key.interestOps(queued > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+      }
+
+      private void close(SelectionKey key)
+      {
+         Connection c = (Connection) key.attachment();
+         for (long id : c.games)
+            sessions.remove(id);
+         key.cancel();
+         try
+         {
+            key.channel().close();
+         }
+         catch (IOException e)
+         {
+            // already gone
+         }
+      }
+   }
+}
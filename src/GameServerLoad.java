@@ -0,0 +1,199 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Load generator for GameServer. Opens a number of connections, each keeping
+ * many games going at once and playing random legal moves in them in turn,
+ * then reports move round-trip latency (p50, p99, max), moves per second and
+ * the number of live sessions per server core. With no -host it starts a
+ * server in the same process on a free port.
+ *
+ * Usage: java GameServerLoad [-host h] [-port n] [-connections n] [-sessions n]
+ *        [-seconds n] [-threads n]
+ *
+ * @author Zach McGuckin
+ *
+ */
+public class GameServerLoad
+{
+   public static void main(String[] args) throws Exception
+   {
+      String host = null;
+      int port = GameServer.DEFAULT_PORT;
+      int connections = 16;
+      int sessions = 4000;
+      int seconds = 10;
+      int threads = Runtime.getRuntime().availableProcessors();
+      for (int i = 0; i + 1 < args.length; i += 2)
+      {
+         String value = args[i + 1];
+         if (args[i].equals("-host"))
+            host = value;
+         else if (args[i].equals("-port"))
+            port = Integer.parseInt(value);
+         else if (args[i].equals("-connections"))
+            connections = Integer.parseInt(value);
+         else if (args[i].equals("-sessions"))
+            sessions = Integer.parseInt(value);
+         else if (args[i].equals("-seconds"))
+            seconds = Integer.parseInt(value);
+         else if (args[i].equals("-threads"))
+            threads = Integer.parseInt(value);
+         else
+            throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+
+      GameServer local = null;
+      if (host == null)
+      {
+         final GameServer server = new GameServer(0, threads);
+         Thread t = new Thread(new Runnable()
+         {
+            @Override
+            public void run()
+            {
+               try
+               {
+                  server.run();
+               }
+               catch (IOException e)
+               {
+                  e.printStackTrace();
+               }
+            }
+         }, "server-accept");
+         t.setDaemon(true);
+         t.start();
+         local = server;
+         host = "localhost";
+         port = server.port();
+      }
+
+      long deadline = System.currentTimeMillis() + seconds * 1000L;
+      ExecutorService pool = Executors.newFixedThreadPool(connections);
+      List<Future<long[]>> clients = new ArrayList<Future<long[]>>();
+      for (int c = 0; c < connections; ++c)
+         clients.add(pool.submit(new Client(host, port, sessions / connections, deadline, c)));
+
+      long[] all = new long[0];
+      int length = 0;
+      for (Future<long[]> f : clients)
+      {
+         long[] latencies = f.get();
+         all = Arrays.copyOf(all, length + latencies.length);
+         System.arraycopy(latencies, 0, all, length, latencies.length);
+         length += latencies.length;
+      }
+      pool.shutdown();
+      Arrays.sort(all);
+
+      int cores = (local != null) ? threads : Runtime.getRuntime().availableProcessors();
+      int live = sessions / connections * connections;
+      System.out.printf("%d connections, %d sessions, %d moves in %d s: %.0f moves/s%n", connections, live, length,
+            seconds, length / (double) seconds);
+      if (length > 0)
+         System.out.printf("latency p50 %.3f ms  p99 %.3f ms  max %.3f ms%n", all[length / 2] / 1e6,
+               all[(int) (length * 0.99)] / 1e6, all[length - 1] / 1e6);
+      System.out.printf("%.0f sessions per server core (%d cores)%n", live / (double) cores, cores);
+      if (local != null)
+         local.close();
+   }
+
+   /** One connection playing its games round-robin; returns the latency of every move in nanoseconds */
+   private static final class Client implements Callable<long[]>
+   {
+      private final String host;
+      private final int port;
+      private final int sessions;
+      private final long deadline;
+      private final Random random;
+
+      Client(String host, int port, int sessions, long deadline, long seed)
+      {
+         this.host = host;
+         this.port = port;
+         this.sessions = sessions;
+         this.deadline = deadline;
+         random = new Random(seed);
+      }
+
+      @Override
+      public long[] call() throws IOException
+      {
+         try (Socket socket = new Socket())
+         {
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port));
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            OutputStream out = socket.getOutputStream();
+
+            // A local copy of each game picks the moves; the server checks them
+            Game[] games = new Game[sessions];
+            long[] ids = new long[sessions];
+            for (int i = 0; i < sessions; ++i)
+            {
+               games[i] = new Game();
+               ids[i] = id(request(in, out, "NEW"));
+            }
+
+            long[] latencies = new long[1 << 16];
+            int count = 0;
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            while (System.currentTimeMillis() < deadline)
+            {
+               for (int i = 0; i < sessions; ++i)
+               {
+                  Game game = games[i];
+                  if (game.isOver() || game.moveCount() >= 300)
+                  {
+                     request(in, out, "END " + ids[i]);
+                     games[i] = game = new Game();
+                     ids[i] = id(request(in, out, "NEW"));
+                  }
+                  int move = moves[random.nextInt(game.legalMoves(moves))];
+                  long start = System.nanoTime();
+                  String reply = request(in, out, "MOVE " + ids[i] + " " + Move.notation(move));
+                  if (count == latencies.length)
+                     latencies = Arrays.copyOf(latencies, count * 2);
+                  latencies[count++] = System.nanoTime() - start;
+                  if (!reply.startsWith("OK"))
+                     throw new IOException("Server refused a legal move: " + reply);
+                  game.play(move);
+               }
+            }
+            return Arrays.copyOf(latencies, count);
+         }
+      }
+
+      private static String request(BufferedReader in, OutputStream out, String line) throws IOException
+      {
+         out.write((line + "\n").getBytes(StandardCharsets.US_ASCII));
+         out.flush();
+         String reply = in.readLine();
+         if (reply == null)
+            throw new IOException("Server closed the connection");
+         return reply;
+      }
+
+      private static long id(String reply) throws IOException
+      {
+         String[] words = reply.split(" ");
+         if (!words[0].equals("OK"))
+            throw new IOException("Cannot start a game: " + reply);
+         return Long.parseLong(words[1]);
+      }
+   }
+}
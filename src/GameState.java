@@ -0,0 +1,11 @@
+/**
+ * The various states of a game. A draw is a threefold repetition or the
+ * move limit without a capture or a man moving, see Game.
+ *
+ * @author Zach McGuckin
+ *
+ */
+public enum GameState
+{
+   playing, redWon, blackWon, draw
+}
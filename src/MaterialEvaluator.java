@@ -0,0 +1,26 @@
+/**
+ * Counts material only: 100 for a man and 130 for a king. This was the
+ * search's evaluation before Evaluator was pluggable, and is kept as a
+ * baseline for tournaments and benchmarks.
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class MaterialEvaluator implements Evaluator
+{
+   private static final int MAN = 100;
+   private static final int KING = 130;
+
+   @Override
+   public void prepare(Position p)
+   {
+   }
+
+   @Override
+   public int evaluate(Position p)
+   {
+      int score = MAN * (p.count(Position.RED_MAN) - p.count(Position.BLACK_MAN))
+            + KING * (p.count(Position.RED_KING) - p.count(Position.BLACK_KING));
+      return (p.sideToMove() == Position.RED) ? score : -score;
+   }
+}
@@ -0,0 +1,253 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * In-process metrics: named counters, timers and rates derived from two
+ * counters, for seeing where time goes in a running program without
+ * attaching a profiler. Counters are LongAdders, so threads updating the same
+ * one do not contend, and nothing is recorded (and no clock is read) unless
+ * metrics are on.
+ *
+ * Metrics are off by default. Running any main with -Dcheckers.metrics=file
+ * turns them on and appends a snapshot of every metric to the file every
+ * -Dcheckers.metrics.seconds (default 10) and once more at exit. Counts are
+ * totals since the start, so two snapshots give the rate in between.
+ *
+ * Hot paths keep a metric in a static final field and time a call with
+ *   long t = TIMER.start();  ...  TIMER.stop(t);
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class Metrics
+{
+   private static final ConcurrentSkipListMap<String, Counter> COUNTERS = new ConcurrentSkipListMap<String, Counter>();
+   private static final ConcurrentSkipListMap<String, Timer> TIMERS = new ConcurrentSkipListMap<String, Timer>();
+   private static final List<String[]> RATES = new CopyOnWriteArrayList<String[]>(); // name, numerator, denominator, scale
+   private static final long START = System.currentTimeMillis();
+
+   private static volatile boolean enabled;
+
+   static
+   {
+      String file = System.getProperty("checkers.metrics");
+      if (file != null)
+         start(new File(file), Long.getLong("checkers.metrics.seconds", 10) * 1000);
+   }
+
+   private Metrics()
+   {
+   }
+
+   public static boolean enabled()
+   {
+      return enabled;
+   }
+
+   /** Start recording without writing snapshots anywhere */
+   public static void enable()
+   {
+      enabled = true;
+   }
+
+   /** Start recording and append a snapshot to "file" every periodMillis and at exit */
+   public static void start(final File file, final long periodMillis)
+   {
+      enabled = true;
+      Thread dumper = new Thread(new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            try
+            {
+               while (true)
+               {
+                  Thread.sleep(periodMillis);
+                  dump(file);
+               }
+            }
+            catch (InterruptedException e)
+            {
+               // exiting
+            }
+         }
+      }, "metrics-dump");
+      dumper.setDaemon(true);
+      dumper.start();
+      Runtime.getRuntime().addShutdownHook(new Thread(new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            dump(file);
+         }
+      }, "metrics-exit"));
+   }
+
+   /** The counter with this name, created on first use */
+   public static Counter counter(String name)
+   {
+      Counter c = COUNTERS.get(name);
+      if (c == null)
+      {
+         COUNTERS.putIfAbsent(name, new Counter());
+         c = COUNTERS.get(name);
+      }
+      return c;
+   }
+
+   /** The timer with this name, created on first use */
+   public static Timer timer(String name)
+   {
+      Timer t = TIMERS.get(name);
+      if (t == null)
+      {
+         TIMERS.putIfAbsent(name, new Timer());
+         t = TIMERS.get(name);
+      }
+      return t;
+   }
+
+   /** Report numerator / denominator * scale under "name" in each snapshot */
+   public static void rate(String name, String numerator, String denominator, double scale)
+   {
+      counter(numerator);
+      counter(denominator);
+      RATES.add(new String[] { name, numerator, denominator, Double.toString(scale) });
+   }
+
+   /** Bytes allocated so far by the current thread, or 0 if the JVM cannot tell */
+   public static long allocatedBytes()
+   {
+      java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+      if (threads instanceof com.sun.management.ThreadMXBean)
+         return Math.max(0, ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId()));
+      return 0;
+   }
+
+   /** Every metric, one per line */
+   public static String snapshot()
+   {
+      StringBuilder sb = new StringBuilder();
+      sb.append(String.format("# %tF %<tT  uptime %.1f s%n", new Date(), (System.currentTimeMillis() - START) / 1000.0));
+      for (Map.Entry<String, Counter> c : COUNTERS.entrySet())
+         sb.append(String.format("counter %-28s %d%n", c.getKey(), c.getValue().sum()));
+      for (Map.Entry<String, Timer> t : TIMERS.entrySet())
+         sb.append(String.format("timer   %-28s %s%n", t.getKey(), t.getValue()));
+      for (String[] r : RATES)
+      {
+         long denominator = counter(r[2]).sum();
+         double value = (denominator == 0) ? 0 : counter(r[1]).sum() * Double.parseDouble(r[3]) / denominator;
+         sb.append(String.format("rate    %-28s %.3f%n", r[0], value));
+      }
+      return sb.toString();
+   }
+
+   private static void dump(File file)
+   {
+      try (PrintWriter out = new PrintWriter(new FileWriter(file, true)))
+      {
+         out.println(snapshot());
+      }
+      catch (IOException e)
+      {
+         System.err.println("Cannot write metrics to " + file + ": " + e.getMessage());
+      }
+   }
+
+   /** A count that any thread can add to */
+   public static final class Counter
+   {
+      private final LongAdder sum = new LongAdder();
+
+      public void add(long n)
+      {
+         if (enabled)
+            sum.add(n);
+      }
+
+      public void increment()
+      {
+         if (enabled)
+            sum.increment();
+      }
+
+      public long sum()
+      {
+         return sum.sum();
+      }
+   }
+
+   /** Count, total and longest time of an operation */
+   public static final class Timer
+   {
+      private static final LongBinaryOperator MAX = new LongBinaryOperator()
+      {
+         @Override
+         public long applyAsLong(long a, long b)
+         {
+            return Math.max(a, b);
+         }
+      };
+
+      private final LongAdder count = new LongAdder();
+      private final LongAdder nanos = new LongAdder();
+      private final LongAccumulator max = new LongAccumulator(MAX, 0);
+
+      /** Start timing: a time to pass to stop(), or 0 when metrics are off */
+      public long start()
+      {
+         return enabled ? System.nanoTime() : 0;
+      }
+
+      /** Stop timing something started with start() */
+      public void stop(long start)
+      {
+         if (start != 0)
+            record(System.nanoTime() - start);
+      }
+
+      public void record(long elapsedNanos)
+      {
+         if (!enabled)
+            return;
+         count.increment();
+         nanos.add(elapsedNanos);
+         max.accumulate(elapsedNanos);
+      }
+
+      public long count()
+      {
+         return count.sum();
+      }
+
+      public double meanMillis()
+      {
+         long n = count.sum();
+         return (n == 0) ? 0 : nanos.sum() / 1e6 / n;
+      }
+
+      public double maxMillis()
+      {
+         return max.get() / 1e6;
+      }
+
+      @Override
+      public String toString()
+      {
+         return String.format("count %d  mean %.4f ms  max %.3f ms", count(), meanMillis(), maxMillis());
+      }
+   }
+}
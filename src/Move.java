@@ -0,0 +1,84 @@
+/**
+ * Moves are packed into a single int so move lists are plain int[] arrays.
+ * A move is one step: either a simple move or a single jump. A multi-jump is
+ * played as several jumps by the same side, exactly as it is with the mouse.
+ *
+ * bits 0-4   from square
+ * bits 5-9   to square
+ * bits 10-14 captured square (jumps only)
+ * bit  15    capture flag
+ * bit  16    crowning flag
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class Move
+{
+   public static final int NONE = 0;
+
+   public static final int CAPTURE = 1 << 15;
+   public static final int CROWN = 1 << 16;
+
+   private Move()
+   {
+   }
+
+   public static int simple(int from, int to, boolean crown)
+   {
+      return from | (to << 5) | (crown ? CROWN : 0);
+   }
+
+   public static int jump(int from, int to, int captured, boolean crown)
+   {
+      return from | (to << 5) | (captured << 10) | CAPTURE | (crown ? CROWN : 0);
+   }
+
+   public static int from(int move)
+   {
+      return move & 31;
+   }
+
+   public static int to(int move)
+   {
+      return (move >>> 5) & 31;
+   }
+
+   public static int captured(int move)
+   {
+      return (move >>> 10) & 31;
+   }
+
+   public static boolean isCapture(int move)
+   {
+      return (move & CAPTURE) != 0;
+   }
+
+   public static boolean isCrowning(int move)
+   {
+      return (move & CROWN) != 0;
+   }
+
+   /** Human readable form using the row/col of CheckersMain, e.g. "2,4-3,5" or "2,4x4,6" */
+   public static String toString(int move)
+   {
+      int from = from(move);
+      int to = to(move);
+      return Bitboard.row(from) + "," + Bitboard.col(from) + (isCapture(move) ? "x" : "-")
+            + Bitboard.row(to) + "," + Bitboard.col(to);
+   }
+
+   /** A step in standard numbering, e.g. "11-15" or "15x24" */
+   public static String notation(int move)
+   {
+      return Bitboard.number(from(move)) + (isCapture(move) ? "x" : "-") + Bitboard.number(to(move));
+   }
+
+   /** A whole turn of one or more steps as PDN writes it, e.g. "11-15" or "15x24x31" */
+   public static String notation(int[] steps)
+   {
+      StringBuilder sb = new StringBuilder().append(Bitboard.number(from(steps[0])));
+      for (int step : steps)
+         sb.append(isCapture(step) ? 'x' : '-').append(Bitboard.number(to(step)));
+      return sb.toString();
+   }
+}
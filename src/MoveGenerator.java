@@ -0,0 +1,151 @@
+/**
+ * Legal move generation over the bitboards of a Position.
+ * Whole sets of pieces are stepped with shift-and-mask operations; jumps are
+ * mandatory, and a piece in the middle of a multi-jump is the only one that may move.
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class MoveGenerator
+{
+   // The longest move list in any reachable position is well below this
+   public static final int MAX_MOVES = 64;
+
+   private static final int DOWN_LEFT = 0;
+   private static final int DOWN_RIGHT = 1;
+   private static final int UP_LEFT = 2;
+   private static final int UP_RIGHT = 3;
+
+   private MoveGenerator()
+   {
+   }
+
+   /** Return the subset of "pieces" (belonging to the side to move) that have a jump */
+   public static int jumpers(Position p, int pieces)
+   {
+      int opp = p.opponent();
+      int empty = p.empty();
+      int down = Bitboard.upRight(Bitboard.upRight(empty) & opp) | Bitboard.upLeft(Bitboard.upLeft(empty) & opp);
+      int up = Bitboard.downRight(Bitboard.downRight(empty) & opp) | Bitboard.downLeft(Bitboard.downLeft(empty) & opp);
+      if (p.sideToMove == Position.RED)
+         return pieces & (down | (up & p.kings));
+      return pieces & (up | (down & p.kings));
+   }
+
+   /** Return true if the side to move has to jump */
+   public static boolean hasJump(Position p)
+   {
+      return p.jumpers != 0;
+   }
+
+   /** Return true if the side to move has any legal move */
+   public static boolean canMove(Position p)
+   {
+      if (p.jumpers != 0)
+         return true;
+      if (p.pending >= 0)
+         return false;
+      int own = p.own();
+      int empty = p.empty();
+      int down = Bitboard.upRight(empty) | Bitboard.upLeft(empty);   // squares with an empty square below
+      int up = Bitboard.downRight(empty) | Bitboard.downLeft(empty); // squares with an empty square above
+      if (p.sideToMove == Position.RED)
+         return (own & (down | (up & p.kings))) != 0;
+      return (own & (up | (down & p.kings))) != 0;
+   }
+
+   /** Write every legal move of the side to move into "moves" and return how many there are */
+   public static int generate(Position p, int[] moves)
+   {
+      int own = (p.pending >= 0) ? 1 << p.pending : p.own();
+      int opp = p.opponent();
+      int empty = p.empty();
+      int kings = own & p.kings;
+      int men = own & ~p.kings;
+      boolean red = p.sideToMove == Position.RED;
+      int down = red ? own : kings; // pieces allowed to go down the board
+      int up = red ? kings : own;   // pieces allowed to go up the board
+      int crownRow = red ? Bitboard.BOTTOM_ROW : Bitboard.TOP_ROW;
+
+      int n = 0;
+      if (p.jumpers != 0)
+      {
+         // Only pieces known to have a jump need to be looked at
+         int jumpDown = down & p.jumpers;
+         int jumpUp = up & p.jumpers;
+         n = addJumps(moves, n, jumpDown, DOWN_LEFT, opp, empty, men, crownRow);
+         n = addJumps(moves, n, jumpDown, DOWN_RIGHT, opp, empty, men, crownRow);
+         n = addJumps(moves, n, jumpUp, UP_LEFT, opp, empty, men, crownRow);
+         n = addJumps(moves, n, jumpUp, UP_RIGHT, opp, empty, men, crownRow);
+         return n;
+      }
+      if (p.pending >= 0)
+         return 0;
+
+      n = addSimple(moves, n, down, DOWN_LEFT, empty, men, crownRow);
+      n = addSimple(moves, n, down, DOWN_RIGHT, empty, men, crownRow);
+      n = addSimple(moves, n, up, UP_LEFT, empty, men, crownRow);
+      n = addSimple(moves, n, up, UP_RIGHT, empty, men, crownRow);
+      return n;
+   }
+
+   /** Return the legal move from "from" to "to", or Move.NONE if there is none */
+   public static int find(Position p, int from, int to)
+   {
+      int[] moves = new int[MAX_MOVES];
+      int n = generate(p, moves);
+      for (int i = 0; i < n; ++i)
+      {
+         if (Move.from(moves[i]) == from && Move.to(moves[i]) == to)
+            return moves[i];
+      }
+      return Move.NONE;
+   }
+
+   private static int addJumps(int[] moves, int n, int movers, int dir, int opp, int empty, int men, int crownRow)
+   {
+      int targets = step(dir, step(dir, movers) & opp) & empty;
+      int back = dir ^ 3; // DOWN_LEFT <-> UP_RIGHT, DOWN_RIGHT <-> UP_LEFT
+      while (targets != 0)
+      {
+         int to = targets & -targets;
+         targets ^= to;
+         int captured = step(back, to);
+         int from = step(back, captured);
+         boolean crown = (from & men) != 0 && (to & crownRow) != 0;
+         moves[n++] = Move.jump(Integer.numberOfTrailingZeros(from), Integer.numberOfTrailingZeros(to),
+               Integer.numberOfTrailingZeros(captured), crown);
+      }
+      return n;
+   }
+
+   private static int addSimple(int[] moves, int n, int movers, int dir, int empty, int men, int crownRow)
+   {
+      int targets = step(dir, movers) & empty;
+      int back = dir ^ 3;
+      while (targets != 0)
+      {
+         int to = targets & -targets;
+         targets ^= to;
+         int from = step(back, to);
+         boolean crown = (from & men) != 0 && (to & crownRow) != 0;
+         moves[n++] = Move.simple(Integer.numberOfTrailingZeros(from), Integer.numberOfTrailingZeros(to), crown);
+      }
+      return n;
+   }
+
+   private static int step(int dir, int b)
+   {
+      switch (dir)
+      {
+         case DOWN_LEFT:
+            return Bitboard.downLeft(b);
+         case DOWN_RIGHT:
+            return Bitboard.downRight(b);
+         case UP_LEFT:
+            return Bitboard.upLeft(b);
+         default:
+            return Bitboard.upRight(b);
+      }
+   }
+}
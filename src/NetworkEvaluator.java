@@ -0,0 +1,162 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Evaluation by a small network trained on self-play games (see
+ * NetworkTrainer). Its inputs are one feature per piece type and square,
+ * 128 in all and at most 24 on, feeding one hidden layer of clipped ReLU
+ * units and a single output:
+ *   hidden[j] = clamp(bias[j] + sum of weights[f][j] over the pieces f, 0, 1)
+ *   score     = 100 * (outputBias + sum of output[j] * hidden[j])
+ * from red's point of view, in the same units as the other evaluators.
+ *
+ * The first layer is the expensive part, and a move changes only two or three
+ * of its inputs, so the Position keeps the hidden sums itself (see
+ * Position.setFeatureWeights) and a leaf only has to clip them and take one
+ * dot product. Weights are held as ints, the first layer scaled by QA and the
+ * output by QB, and every loop runs over plain int arrays with no branches so
+ * that HotSpot compiles it to SIMD instructions.
+ *
+ * Weights file (big-endian): "CKNN", version 1, inputs (128), hidden units,
+ * then as floats the first layer input by input, its biases, the output
+ * weights and the output bias.
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class NetworkEvaluator implements Evaluator
+{
+   public static final int INPUTS = 4 * Bitboard.SQUARES;
+   private static final int MAGIC = 0x434B4E4E; // "CKNN"
+   private static final int VERSION = 1;
+   static final int QA = 127; // first layer scale: a hidden unit's clipped value runs from 0 to QA
+   static final int QB = 64;  // output scale
+   // Scores stay clear of won positions so the search can still tell them apart
+   private static final int LIMIT = Search.TABLEBASE_WIN / 2;
+
+   private final int[] weights; // see Position.setFeatureWeights
+   private final int[] bias;
+   private final int[] output;
+   private final int outputBias;
+
+   /** Network with the given float weights, laid out as in the weights file */
+   public NetworkEvaluator(float[] weights, float[] bias, float[] output, float outputBias)
+   {
+      int hidden = bias.length;
+      if (weights.length != INPUTS * hidden || output.length != hidden)
+         throw new IllegalArgumentException("Layer sizes do not match " + hidden + " hidden units");
+      this.weights = quantize(weights, QA);
+      this.bias = quantize(bias, QA);
+      this.output = quantize(output, QB);
+      this.outputBias = Math.round(outputBias * QA * QB);
+   }
+
+   /** Network read from a weights file, see the class comment */
+   public static NetworkEvaluator load(File file) throws IOException
+   {
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+      {
+         if (in.readInt() != MAGIC)
+            throw new IOException(file + " is not a network weights file");
+         int version = in.readInt();
+         if (version != VERSION)
+            throw new IOException("Unknown network version " + version + " in " + file);
+         int inputs = in.readInt();
+         int hidden = in.readInt();
+         if (inputs != INPUTS || hidden <= 0 || hidden > 4096)
+            throw new IOException("Bad network size " + inputs + "x" + hidden + " in " + file);
+         float[] weights = readFloats(in, inputs * hidden);
+         float[] bias = readFloats(in, hidden);
+         float[] output = readFloats(in, hidden);
+         return new NetworkEvaluator(weights, bias, output, in.readFloat());
+      }
+   }
+
+   /** Write float weights in the format load() reads */
+   public static void save(File file, float[] weights, float[] bias, float[] output, float outputBias) throws IOException
+   {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+      {
+         out.writeInt(MAGIC);
+         out.writeInt(VERSION);
+         out.writeInt(INPUTS);
+         out.writeInt(bias.length);
+         writeFloats(out, weights);
+         writeFloats(out, bias);
+         writeFloats(out, output);
+         out.writeFloat(outputBias);
+      }
+   }
+
+   /** Number of hidden units */
+   public int hidden()
+   {
+      return bias.length;
+   }
+
+   @Override
+   public void prepare(Position p)
+   {
+      p.setSquareTable(null);
+      p.setFeatureWeights(weights, bias);
+   }
+
+   @Override
+   public int evaluate(Position p)
+   {
+      int[] acc;
+      int offset;
+      if (p.featureWeights() == weights)
+      {
+         acc = p.accumulators();
+         offset = p.accumulatorOffset();
+      }
+      else
+      {
+         // A position that was not prepared is still scored right, just more slowly
+         acc = new int[bias.length];
+         offset = 0;
+         Position.accumulate(weights, bias, p.red(), p.black(), p.kings(), acc, 0);
+      }
+      int sum = 0;
+      for (int j = 0; j < output.length; ++j)
+         sum += Math.min(Math.max(acc[offset + j], 0), QA) * output[j];
+      int score = (int) ((sum + (long) outputBias) * 100 / (QA * QB));
+      score = Math.max(-LIMIT, Math.min(LIMIT, score));
+      return (p.sideToMove() == Position.RED) ? score : -score;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "network " + INPUTS + "x" + bias.length + "x1";
+   }
+
+   private static int[] quantize(float[] values, int scale)
+   {
+      int[] q = new int[values.length];
+      for (int i = 0; i < values.length; ++i)
+         q[i] = Math.round(values[i] * scale);
+      return q;
+   }
+
+   private static float[] readFloats(DataInputStream in, int n) throws IOException
+   {
+      float[] values = new float[n];
+      for (int i = 0; i < n; ++i)
+         values[i] = in.readFloat();
+      return values;
+   }
+
+   private static void writeFloats(DataOutputStream out, float[] values) throws IOException
+   {
+      for (float v : values)
+         out.writeFloat(v);
+   }
+}
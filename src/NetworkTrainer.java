@@ -0,0 +1,315 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Trains a NetworkEvaluator from games on disk, such as the self-play written
+ * by Tournament -pdn. Every quiet position that starts a turn (no capture
+ * available, so its value is not about to swing) becomes a sample. Its target
+ * blends the game's result for red (1, 1/2 or 0) with the score the classic
+ * PieceSquareEvaluator gives it, turned into an expected result:
+ *   target = lambda * result + (1 - lambda) * sigmoid(classic / SCALE)
+ * so a handful of games still teaches material, and more games let the
+ * results take over. The network, in floats, is fitted by stochastic
+ * gradient descent on the cross-entropy of sigmoid(score / SCALE) against
+ * the target; one sample in ten is held out and its loss reported next to
+ * the classic evaluator's, so the two can be compared on the same positions.
+ *
+ * Usage: java NetworkTrainer -in games.pdn[,more.pdn] -out network.nn [-hidden 32] [-epochs 30]
+ *        [-rate 0.01] [-lambda 0.5] [-seed 1]
+ *
+ * @author Zach McGuckin
+ *
+ */
+public class NetworkTrainer
+{
+   static final double SCALE = 150; // a score that many points up is expected to score sigmoid(1), about 0.73
+
+   // Samples: red, black and kings boards, and the target
+   private int[] boards = new int[3 * 1024];
+   private float[] targets = new float[1024];
+   private float[] classic = new float[1024]; // the classic evaluator's expected result, for comparison
+   private int samples;
+
+   // The network, laid out as in the weights file
+   private final int hidden;
+   private final float[] weights;
+   private final float[] bias;
+   private final float[] output;
+   private float outputBias;
+
+   // Scratch for one sample
+   private final int[] offsets = new int[Bitboard.SQUARES];
+   private final float[] sums;
+   private final float[] units;
+
+   private NetworkTrainer(int hidden, Random random)
+   {
+      this.hidden = hidden;
+      weights = new float[NetworkEvaluator.INPUTS * hidden];
+      bias = new float[hidden];
+      output = new float[hidden];
+      sums = new float[hidden];
+      units = new float[hidden];
+      for (int i = 0; i < weights.length; ++i)
+         weights[i] = (float) ((random.nextDouble() - 0.5) * 0.2);
+      for (int j = 0; j < hidden; ++j)
+      {
+         bias[j] = 0.5f; // units start in the middle of their range, where they learn
+         output[j] = (float) ((random.nextDouble() - 0.5) * 0.2);
+      }
+   }
+
+   public static void main(String[] args) throws IOException
+   {
+      String in = null;
+      String out = null;
+      int hidden = 32;
+      int epochs = 30;
+      double rate = 0.01;
+      double lambda = 0.5;
+      long seed = 1;
+      for (int i = 0; i + 1 < args.length; i += 2)
+      {
+         String value = args[i + 1];
+         if (args[i].equals("-in"))
+            in = value;
+         else if (args[i].equals("-out"))
+            out = value;
+         else if (args[i].equals("-hidden"))
+            hidden = Integer.parseInt(value);
+         else if (args[i].equals("-epochs"))
+            epochs = Integer.parseInt(value);
+         else if (args[i].equals("-rate"))
+            rate = Double.parseDouble(value);
+         else if (args[i].equals("-lambda"))
+            lambda = Double.parseDouble(value);
+         else if (args[i].equals("-seed"))
+            seed = Long.parseLong(value);
+         else
+            throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+      if (in == null || out == null)
+         throw new IllegalArgumentException("Usage: java NetworkTrainer -in games.pdn[,more.pdn] -out network.nn"
+               + " [-hidden n] [-epochs n] [-rate r] [-lambda l] [-seed n]");
+
+      Random random = new Random(seed);
+      NetworkTrainer trainer = new NetworkTrainer(hidden, random);
+      long games = 0;
+      for (String file : in.split(","))
+         games += trainer.read(new File(file), lambda);
+      if (trainer.samples < 10)
+         throw new IllegalArgumentException("Only " + trainer.samples + " positions in " + in);
+      trainer.shuffle(random);
+      int held = trainer.samples / 10; // the first tenth, after shuffling
+      System.out.printf("%d games, %d positions (%d held out), %d hidden units%n", games, trainer.samples, held, hidden);
+      System.out.printf("classic evaluator: held-out loss %.5f%n", trainer.classicLoss(0, held));
+
+      int[] order = new int[trainer.samples - held];
+      for (int i = 0; i < order.length; ++i)
+         order[i] = held + i;
+      for (int epoch = 1; epoch <= epochs; ++epoch)
+      {
+         long start = System.nanoTime();
+         shuffle(order, random);
+         double loss = 0;
+         for (int i : order)
+            loss += trainer.step(i, (float) rate);
+         double seconds = (System.nanoTime() - start) / 1e9;
+         System.out.printf("epoch %3d  loss %.5f  held-out %.5f  %.0f positions/s%n", epoch, loss / order.length,
+               trainer.loss(0, held), order.length / seconds);
+      }
+      NetworkEvaluator.save(new File(out), trainer.weights, trainer.bias, trainer.output, trainer.outputBias);
+      System.out.println("Wrote " + out);
+   }
+
+   // Add the quiet turn-start positions of every finished game in a PDN file; returns the games used
+   private long read(File file, double lambda) throws IOException
+   {
+      PieceSquareEvaluator teacher = new PieceSquareEvaluator();
+      int[] moves = new int[MoveGenerator.MAX_MOVES];
+      long games = 0;
+      try (PdnReader reader = new PdnReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)))
+      {
+         while (true)
+         {
+            PdnGame game;
+            try
+            {
+               game = reader.next();
+            }
+            catch (PdnReader.PdnException e)
+            {
+               System.err.println("Skipped: " + e.getMessage());
+               continue;
+            }
+            if (game == null)
+               break;
+            double result;
+            if (game.result().equals(PdnGame.RED_WINS))
+               result = 1;
+            else if (game.result().equals(PdnGame.BLACK_WINS))
+               result = 0;
+            else if (game.result().equals(PdnGame.DRAW))
+               result = 0.5;
+            else
+               continue; // unfinished
+            ++games;
+            Position p = game.start();
+            for (int i = 0; i <= game.moveCount(); ++i)
+            {
+               if (p.pending() < 0 && p.jumpers() == 0 && MoveGenerator.generate(p, moves) > 0)
+               {
+                  int score = teacher.evaluate(p);
+                  double expected = sigmoid(((p.sideToMove() == Position.RED) ? score : -score) / SCALE);
+                  add(p, (float) (lambda * result + (1 - lambda) * expected), (float) expected);
+               }
+               if (i < game.moveCount())
+                  p.play(game.move(i));
+            }
+         }
+      }
+      return games;
+   }
+
+   private void add(Position p, float target, float expected)
+   {
+      if (samples == targets.length)
+      {
+         boards = Arrays.copyOf(boards, boards.length * 2);
+         targets = Arrays.copyOf(targets, targets.length * 2);
+         classic = Arrays.copyOf(classic, classic.length * 2);
+      }
+      boards[3 * samples] = p.red();
+      boards[3 * samples + 1] = p.black();
+      boards[3 * samples + 2] = p.kings();
+      targets[samples] = target;
+      classic[samples] = expected;
+      ++samples;
+   }
+
+   private void shuffle(Random random)
+   {
+      for (int i = samples - 1; i > 0; --i)
+      {
+         int j = random.nextInt(i + 1);
+         swap(boards, 3 * i, 3 * j);
+         swap(boards, 3 * i + 1, 3 * j + 1);
+         swap(boards, 3 * i + 2, 3 * j + 2);
+         float t = targets[i];
+         targets[i] = targets[j];
+         targets[j] = t;
+         t = classic[i];
+         classic[i] = classic[j];
+         classic[j] = t;
+      }
+   }
+
+   private static void shuffle(int[] a, Random random)
+   {
+      for (int i = a.length - 1; i > 0; --i)
+         swap(a, i, random.nextInt(i + 1));
+   }
+
+   private static void swap(int[] a, int i, int j)
+   {
+      int t = a[i];
+      a[i] = a[j];
+      a[j] = t;
+   }
+
+   // The features that are on in sample i, as offsets of their weights; returns how many
+   private int features(int i, int[] offsets)
+   {
+      int red = boards[3 * i];
+      int black = boards[3 * i + 1];
+      int kings = boards[3 * i + 2];
+      int n = 0;
+      for (int b = red | black; b != 0; b &= b - 1)
+      {
+         int square = Integer.numberOfTrailingZeros(b);
+         int type = (((red >>> square) & 1) != 0 ? Position.RED_MAN : Position.BLACK_MAN) | ((kings >>> square) & 1);
+         offsets[n++] = (type * Bitboard.SQUARES + square) * hidden;
+      }
+      return n;
+   }
+
+   // Hidden sums and clipped units of sample i; returns the output in men
+   private float forward(int i, int n)
+   {
+      System.arraycopy(bias, 0, sums, 0, hidden);
+      for (int f = 0; f < n; ++f)
+      {
+         int w = offsets[f];
+         for (int j = 0; j < hidden; ++j)
+            sums[j] += weights[w + j];
+      }
+      float out = outputBias;
+      for (int j = 0; j < hidden; ++j)
+      {
+         units[j] = Math.min(Math.max(sums[j], 0f), 1f);
+         out += units[j] * output[j];
+      }
+      return out;
+   }
+
+   // One gradient step on sample i; returns its loss before the step
+   private double step(int i, float rate)
+   {
+      int n = features(i, offsets);
+      double predicted = sigmoid(forward(i, n) * 100 / SCALE);
+      double target = targets[i];
+      // d(cross-entropy)/d(output) for a sigmoid of output * 100 / SCALE
+      float g = (float) ((predicted - target) * 100 / SCALE) * rate;
+      for (int j = 0; j < hidden; ++j)
+      {
+         // Only units inside the clip pass the gradient back
+         float d = (sums[j] > 0 && sums[j] < 1) ? g * output[j] : 0;
+         output[j] -= g * units[j];
+         units[j] = d;
+      }
+      outputBias -= g;
+      for (int j = 0; j < hidden; ++j)
+         bias[j] -= units[j];
+      for (int f = 0; f < n; ++f)
+      {
+         int w = offsets[f];
+         for (int j = 0; j < hidden; ++j)
+            weights[w + j] -= units[j];
+      }
+      return crossEntropy(predicted, target);
+   }
+
+   // Mean loss of the network over samples from..to-1
+   private double loss(int from, int to)
+   {
+      double loss = 0;
+      for (int i = from; i < to; ++i)
+         loss += crossEntropy(sigmoid(forward(i, features(i, offsets)) * 100 / SCALE), targets[i]);
+      return loss / Math.max(1, to - from);
+   }
+
+   // Mean loss of the classic evaluator over samples from..to-1
+   private double classicLoss(int from, int to)
+   {
+      double loss = 0;
+      for (int i = from; i < to; ++i)
+         loss += crossEntropy(classic[i], targets[i]);
+      return loss / Math.max(1, to - from);
+   }
+
+   private static double sigmoid(double x)
+   {
+      return 1 / (1 + Math.exp(-x));
+   }
+
+   private static double crossEntropy(double predicted, double target)
+   {
+      predicted = Math.min(Math.max(predicted, 1e-7), 1 - 1e-7);
+      return -(target * Math.log(predicted) + (1 - target) * Math.log(1 - predicted));
+   }
+}
@@ -0,0 +1,152 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * Opening book read from a memory-mapped file written by OpeningBookBuilder.
+ * The file is a short header and then 12-byte records sorted by position
+ * hash: the Zobrist hash (8 bytes), then the move in the low 17 bits and its
+ * weight in the high 15 bits of an int. A lookup is a binary search for the
+ * first record of the hash, so nothing is loaded or copied up front.
+ *
+ * Positions in the middle of a multi-jump have hashes of their own, so a
+ * multi-jump is stored one step at a time just like the engine plays it.
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class OpeningBook
+{
+   static final int MAGIC = 0x424F4F4B; // "BOOK"
+   static final int HEADER = 8;         // magic, record count
+   static final int RECORD = 12;
+   static final int MAX_WEIGHT = (1 << 15) - 1;
+   private static final int MOVE_BITS = 17;
+   private static final int MOVE_MASK = (1 << MOVE_BITS) - 1;
+
+   private final ByteBuffer records;
+   private final int count;
+
+   private OpeningBook(ByteBuffer records, int count)
+   {
+      this.records = records;
+      this.count = count;
+   }
+
+   public static OpeningBook open(File file) throws IOException
+   {
+      ByteBuffer buffer;
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+      {
+         buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+      if (buffer.capacity() < HEADER || buffer.getInt(0) != MAGIC)
+         throw new IOException("Not an opening book: " + file);
+      int count = buffer.getInt(4);
+      if (buffer.capacity() < HEADER + (long) count * RECORD)
+         throw new IOException("Opening book is truncated: " + file);
+      return new OpeningBook(buffer, count);
+   }
+
+   /** Number of records (position and move pairs) */
+   public int size()
+   {
+      return count;
+   }
+
+   /**
+    * Return a book move for p, or Move.NONE if p is not in the book.
+    * With a Random the move is picked with probability in proportion to its
+    * weight; without one the heaviest move is returned.
+    */
+   public int probe(Position p, Random random)
+   {
+      long hash = p.hash();
+      int first = first(hash);
+      if (first < 0)
+         return Move.NONE;
+
+      // Only moves that are legal here count, in case two positions share a hash
+      int[] legal = new int[MoveGenerator.MAX_MOVES];
+      int n = MoveGenerator.generate(p, legal);
+      int total = 0;
+      int best = Move.NONE;
+      int bestWeight = 0;
+      for (int i = first; i < count && hash(i) == hash; ++i)
+      {
+         int move = move(i);
+         if (!contains(legal, n, move))
+            continue;
+         int weight = weight(i);
+         total += weight;
+         if (weight > bestWeight)
+         {
+            best = move;
+            bestWeight = weight;
+         }
+      }
+      if (random == null || total == 0)
+         return best;
+      int pick = random.nextInt(total);
+      for (int i = first; i < count && hash(i) == hash; ++i)
+      {
+         int move = move(i);
+         if (!contains(legal, n, move))
+            continue;
+         pick -= weight(i);
+         if (pick < 0)
+            return move;
+      }
+      return best;
+   }
+
+   // Index of the first record for "hash", or -1
+   private int first(long hash)
+   {
+      int low = 0;
+      int high = count;
+      while (low < high)
+      {
+         int middle = (low + high) >>> 1;
+         if (hash(middle) < hash)
+            low = middle + 1;
+         else
+            high = middle;
+      }
+      return (low < count && hash(low) == hash) ? low : -1;
+   }
+
+   private long hash(int i)
+   {
+      return records.getLong(HEADER + i * RECORD);
+   }
+
+   private int move(int i)
+   {
+      return records.getInt(HEADER + i * RECORD + 8) & MOVE_MASK;
+   }
+
+   private int weight(int i)
+   {
+      return records.getInt(HEADER + i * RECORD + 8) >>> MOVE_BITS;
+   }
+
+   /** The int stored after the hash for a move and weight */
+   static int pack(int move, int weight)
+   {
+      return move | Math.min(weight, MAX_WEIGHT) << MOVE_BITS;
+   }
+
+   private static boolean contains(int[] moves, int n, int move)
+   {
+      for (int i = 0; i < n; ++i)
+      {
+         if (moves[i] == move)
+            return true;
+      }
+      return false;
+   }
+}
@@ -0,0 +1,249 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Builds an OpeningBook from PDN game archives, from self-play, or both.
+ * Every move played in the first few turns of a game is counted, weighted by
+ * how the game went for the side that played it (2 for a win, 1 for a draw or
+ * unknown result, 0 for a loss). Moves seen in fewer than -min games or that
+ * only ever lost are left out.
+ *
+ * Usage: java OpeningBookBuilder -out file [-pdn file]... [-selfplay games] [-time ms]
+ *        [-threads n] [-plies turns] [-min games]
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class OpeningBookBuilder
+{
+   private final int plies;
+   // position hash -> move -> { games, weight }
+   private final Map<Long, Map<Integer, int[]>> positions = new HashMap<Long, Map<Integer, int[]>>();
+   private int games;
+
+   public OpeningBookBuilder(int plies)
+   {
+      this.plies = plies;
+   }
+
+   public static void main(String[] args) throws Exception
+   {
+      File out = null;
+      List<File> pdn = new ArrayList<File>();
+      int selfPlay = 0;
+      long millis = 100;
+      int threads = Runtime.getRuntime().availableProcessors();
+      int plies = 12;
+      int min = 2;
+      for (int i = 0; i + 1 < args.length; i += 2)
+      {
+         String value = args[i + 1];
+         if (args[i].equals("-out"))
+            out = new File(value);
+         else if (args[i].equals("-pdn"))
+            pdn.add(new File(value));
+         else if (args[i].equals("-selfplay"))
+            selfPlay = Integer.parseInt(value);
+         else if (args[i].equals("-time"))
+            millis = Long.parseLong(value);
+         else if (args[i].equals("-threads"))
+            threads = Integer.parseInt(value);
+         else if (args[i].equals("-plies"))
+            plies = Integer.parseInt(value);
+         else if (args[i].equals("-min"))
+            min = Integer.parseInt(value);
+         else
+            throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+      if (out == null)
+         throw new IllegalArgumentException("No -out file given");
+
+      long start = System.currentTimeMillis();
+      OpeningBookBuilder builder = new OpeningBookBuilder(plies);
+      for (File f : pdn)
+         builder.addPdn(f);
+      if (selfPlay > 0)
+         builder.addSelfPlay(selfPlay, millis, threads);
+      int records = builder.write(out, min);
+      System.out.printf("%d games, %d positions, %d records written to %s in %.1f s%n", builder.games,
+            builder.positions.size(), records, out, (System.currentTimeMillis() - start) / 1000.0);
+   }
+
+   /** Count the opening moves of every game in a PDN file; games that do not parse are reported and skipped */
+   public void addPdn(File file) throws IOException
+   {
+      try (PdnReader in = new PdnReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)))
+      {
+         while (true)
+         {
+            try
+            {
+               PdnGame game = in.next();
+               if (game == null)
+                  break;
+               add(game);
+            }
+            catch (PdnReader.PdnException e)
+            {
+               System.err.println(file + ": " + e.getMessage());
+            }
+         }
+      }
+   }
+
+   /** Play games against itself, with random first moves for variety, and count them */
+   public void addSelfPlay(int count, final long millis, int threads) throws InterruptedException, ExecutionException
+   {
+      ExecutorService pool = Executors.newFixedThreadPool(threads);
+      CompletionService<PdnGame> done = new ExecutorCompletionService<PdnGame>(pool);
+      for (int g = 0; g < count; ++g)
+      {
+         final long seed = g;
+         done.submit(new Callable<PdnGame>()
+         {
+            @Override
+            public PdnGame call()
+            {
+               return selfPlay(new Random(seed), millis);
+            }
+         });
+      }
+      try
+      {
+         for (int g = 0; g < count; ++g)
+         {
+            add(done.take().get());
+            if ((g + 1) % 100 == 0)
+               System.out.println((g + 1) + " self-play games");
+         }
+      }
+      finally
+      {
+         pool.shutdownNow();
+      }
+   }
+
+   // Tables are reused by the games that run on the same pool thread
+   private static final ThreadLocal<TranspositionTable> TABLES = new ThreadLocal<TranspositionTable>();
+
+   private static PdnGame selfPlay(Random random, long millis)
+   {
+      TranspositionTable tt = TABLES.get();
+      if (tt == null)
+      {
+         tt = new TranspositionTable(16);
+         TABLES.set(tt);
+      }
+      tt.clear();
+      Search search = new Search(tt);
+      Game game = new Game();
+      int[] moves = new int[MoveGenerator.MAX_MOVES];
+      int randomTurns = 2 + random.nextInt(3);
+      int turns = 0;
+      while (!game.isOver() && game.moveCount() < 300)
+      {
+         int side = game.sideToMove();
+         int move;
+         if (turns < randomTurns)
+            move = moves[random.nextInt(game.legalMoves(moves))];
+         else
+            move = search.search(game.position(), 0, millis).move;
+         game.play(move);
+         if (game.sideToMove() != side)
+            ++turns;
+      }
+      Map<String, String> tags = new HashMap<String, String>();
+      String result = game.isOver() ? PdnGame.result(game.state()) : PdnGame.DRAW;
+      return PdnGame.of(game, tags, result);
+   }
+
+   /** Count the moves of the first turns of one game */
+   public void add(PdnGame game)
+   {
+      int redScore;
+      String result = game.result();
+      if (result.equals(PdnGame.RED_WINS) || result.equals("2-0"))
+         redScore = 2;
+      else if (result.equals(PdnGame.BLACK_WINS) || result.equals("0-2"))
+         redScore = 0;
+      else
+         redScore = 1;
+
+      ++games;
+      Position p = game.start();
+      int turns = 0;
+      for (int i = 0; i < game.moveCount() && turns < plies; ++i)
+      {
+         int move = game.move(i);
+         int side = p.sideToMove();
+         Map<Integer, int[]> moves = positions.get(p.hash());
+         if (moves == null)
+         {
+            moves = new HashMap<Integer, int[]>(4);
+            positions.put(p.hash(), moves);
+         }
+         int[] stats = moves.get(move);
+         if (stats == null)
+         {
+            stats = new int[2];
+            moves.put(move, stats);
+         }
+         ++stats[0];
+         stats[1] += (side == Position.RED) ? redScore : 2 - redScore;
+         p.play(move);
+         if (p.sideToMove() != side)
+            ++turns;
+      }
+   }
+
+   /** Write the book sorted by hash and return the number of records */
+   public int write(File file, int minGames) throws IOException
+   {
+      long[] hashes = new long[positions.size()];
+      int n = 0;
+      for (long hash : positions.keySet())
+         hashes[n++] = hash;
+      Arrays.sort(hashes);
+
+      List<long[]> records = new ArrayList<long[]>();
+      for (long hash : hashes)
+      {
+         for (Map.Entry<Integer, int[]> e : positions.get(hash).entrySet())
+         {
+            int[] stats = e.getValue();
+            if (stats[0] >= minGames && stats[1] > 0)
+               records.add(new long[] { hash, OpeningBook.pack(e.getKey(), stats[1]) });
+         }
+      }
+
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16)))
+      {
+         out.writeInt(OpeningBook.MAGIC);
+         out.writeInt(records.size());
+         for (long[] r : records)
+         {
+            out.writeLong(r[0]);
+            out.writeInt((int) r[1]);
+         }
+      }
+      return records.size();
+   }
+}
@@ -0,0 +1,181 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Lazy SMP: several Search threads search the same position at once and share
+ * one TranspositionTable, so each thread finds the others' work in the table.
+ * The calling thread runs the main search; helpers run on pool threads and
+ * are stopped when it finishes. Each thread keeps the move-ordering history
+ * of its earlier searches, so a result depends on what was searched before.
+ * With one thread nothing runs in the pool, and a fixed-depth search after
+ * newGame() on a cleared table gives the same result every time.
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class ParallelSearch
+{
+   // Helper threads are shared by every ParallelSearch and die when idle
+   private static final ExecutorService HELPERS = Executors.newCachedThreadPool(new ThreadFactory()
+   {
+      @Override
+      public Thread newThread(Runnable r)
+      {
+         Thread t = new Thread(r, "search-helper");
+         t.setDaemon(true);
+         return t;
+      }
+   });
+
+   private final Search[] searches;
+   private final TranspositionTable tt;
+
+   public ParallelSearch(int threads, TranspositionTable tt)
+   {
+      this(threads, tt, null);
+   }
+
+   /** Parallel search that also looks up endgames in a tablebase, which may be null */
+   public ParallelSearch(int threads, TranspositionTable tt, Tablebase tablebase)
+   {
+      this(threads, tt, tablebase, null);
+   }
+
+   /** Parallel search with its own evaluation, shared by every thread; null means the default */
+   public ParallelSearch(int threads, TranspositionTable tt, Tablebase tablebase, Evaluator evaluator)
+   {
+      if (threads < 1)
+         throw new IllegalArgumentException("Need at least one search thread");
+      this.tt = tt;
+      searches = new Search[threads];
+      for (int i = 0; i < threads; ++i)
+         searches[i] = new Search(tt, tablebase, evaluator, i);
+   }
+
+   public int threads()
+   {
+      return searches.length;
+   }
+
+   public TranspositionTable table()
+   {
+      return tt;
+   }
+
+   /** Search p on every thread and return the deepest result, see Search.search */
+   public Search.Result search(final Position p, final int maxDepth, final long millis)
+   {
+      long start = System.currentTimeMillis();
+      tt.newSearch();
+      for (Search s : searches)
+         s.reset();
+
+      List<Future<Search.Result>> helpers = new ArrayList<Future<Search.Result>>();
+      for (int i = 1; i < searches.length; ++i)
+      {
+         final Search helper = searches[i];
+         final Position copy = new Position(p);
+         helpers.add(HELPERS.submit(new Callable<Search.Result>()
+         {
+            @Override
+            public Search.Result call()
+            {
+               return helper.run(copy, maxDepth, millis);
+            }
+         }));
+      }
+
+      long started = System.nanoTime();
+      long allocated = Metrics.enabled() ? Metrics.allocatedBytes() : 0;
+      Search.Result best = searches[0].run(p, maxDepth, millis);
+      long nodes = best.nodes;
+      for (int i = 1; i < searches.length; ++i)
+         searches[i].stop();
+      for (Future<Search.Result> helper : helpers)
+      {
+         try
+         {
+            Search.Result r = helper.get();
+            nodes += r.nodes;
+            if (r.depth > best.depth && r.move != Move.NONE)
+               best = r;
+         }
+         catch (InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+         }
+         catch (ExecutionException e)
+         {
+            e.printStackTrace();
+         }
+      }
+      Search.Result result = new Search.Result(best.move, best.score, best.depth, nodes,
+            System.currentTimeMillis() - start, best.firstMoveCutoffs, best.branchingFactor);
+      // Allocation counts the calling thread only
+      Search.record(result, started, allocated, probes(), hits());
+      return result;
+   }
+
+   /** Table probes made by every thread in the last search */
+   public long probes()
+   {
+      long total = 0;
+      for (Search s : searches)
+         total += s.probes();
+      return total;
+   }
+
+   /** Probes of the last search that found their position, over every thread */
+   public long hits()
+   {
+      long total = 0;
+      for (Search s : searches)
+         total += s.hits();
+      return total;
+   }
+
+   /** Results stored in the table by every thread in the last search */
+   public long stores()
+   {
+      long total = 0;
+      for (Search s : searches)
+         total += s.stores();
+      return total;
+   }
+
+   /** Stores of the last search that pushed a different position out of its bucket, over every thread */
+   public long collisions()
+   {
+      long total = 0;
+      for (Search s : searches)
+         total += s.collisions();
+      return total;
+   }
+
+   /** See Search.setMoveLimit */
+   public void setMoveLimit(int moves)
+   {
+      for (Search s : searches)
+         s.setMoveLimit(moves);
+   }
+
+   /** See Search.newGame */
+   public void newGame()
+   {
+      for (Search s : searches)
+         s.newGame();
+   }
+
+   /** Ask every thread to return as soon as possible */
+   public void stop()
+   {
+      for (Search s : searches)
+         s.stop();
+   }
+}
@@ -0,0 +1,83 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * PDN import/export benchmark. Writes a file of random self-play games with
+ * PdnWriter, streams it back with PdnReader (which replays and so validates
+ * every move) and reports games and megabytes per second both ways.
+ *
+ * Usage: java PdnBenchmark [games] [file]
+ *
+ * @author Zach McGuckin
+ *
+ */
+public class PdnBenchmark
+{
+   public static void main(String[] args) throws IOException
+   {
+      int games = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+      File file = (args.length > 1) ? new File(args[1]) : File.createTempFile("games", ".pdn");
+      if (args.length < 2)
+         file.deleteOnExit();
+
+      Random random = new Random(1);
+      int[] moves = new int[MoveGenerator.MAX_MOVES];
+      long begin = System.nanoTime();
+      long moveCount = 0;
+      try (PdnWriter out = new PdnWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)))
+      {
+         for (int g = 1; g <= games; ++g)
+         {
+            Game game = new Game();
+            while (!game.isOver() && (game.moveCount() < 400 || game.position().pending() >= 0))
+            {
+               int n = game.legalMoves(moves);
+               game.play(moves[random.nextInt(n)]);
+            }
+            Map<String, String> tags = new LinkedHashMap<String, String>();
+            tags.put("Event", "PdnBenchmark");
+            tags.put("Round", Integer.toString(g));
+            tags.put("White", "random");
+            tags.put("Black", "random");
+            out.write(game, tags);
+            moveCount += game.moveCount();
+         }
+      }
+      report("write", games, moveCount, file.length(), System.nanoTime() - begin);
+
+      begin = System.nanoTime();
+      int read = 0;
+      long readMoves = 0;
+      try (PdnReader in = new PdnReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)))
+      {
+         PdnGame game;
+         while ((game = in.next()) != null)
+         {
+            ++read;
+            readMoves += game.moveCount();
+         }
+      }
+      report("read", read, readMoves, file.length(), System.nanoTime() - begin);
+
+      if (read != games || readMoves != moveCount)
+      {
+         System.out.println("FAIL read " + read + " games, " + readMoves + " moves; wrote " + games + ", " + moveCount);
+         System.exit(1);
+      }
+   }
+
+   private static void report(String what, int games, long moves, long bytes, long nanos)
+   {
+      double seconds = nanos / 1e9;
+      System.out.printf("%-5s %8d games  %10d moves  %7.1f MB  %7.2f s  %9.0f games/s  %6.1f MB/s%n",
+            what, games, moves, bytes / 1e6, seconds, games / seconds, bytes / 1e6 / seconds);
+   }
+}
@@ -0,0 +1,99 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One game record as read from or written to PDN (Portable Draughts Notation):
+ * its tag pairs, start position, moves and result. Moves are the same one-step
+ * packed ints the engine uses, so a multi-jump is several moves here.
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class PdnGame
+{
+   public static final String RED_WINS = "1-0";   // PDN lists the first mover (our red) first
+   public static final String BLACK_WINS = "0-1";
+   public static final String DRAW = "1/2-1/2";
+   public static final String UNKNOWN = "*";
+
+   private final Map<String, String> tags;
+   private final Position start;
+   private final int[] moves;
+   private final String result;
+
+   public PdnGame(Map<String, String> tags, Position start, int[] moves, String result)
+   {
+      this.tags = new LinkedHashMap<String, String>(tags);
+      this.start = new Position(start);
+      this.moves = moves.clone();
+      this.result = result;
+   }
+
+   /** Record a game played through the Game API */
+   public static PdnGame of(Game game, Map<String, String> tags)
+   {
+      return of(game, tags, result(game.state()));
+   }
+
+   /** Record a game with a result given by the caller, e.g. a draw or an adjudication */
+   public static PdnGame of(Game game, Map<String, String> tags, String result)
+   {
+      int[] moves = new int[game.moveCount()];
+      for (int i = 0; i < moves.length; ++i)
+         moves[i] = game.move(i);
+      return new PdnGame(tags, game.start(), moves, result);
+   }
+
+   /** The PDN result for a game state */
+   public static String result(GameState state)
+   {
+      if (state == GameState.redWon)
+         return RED_WINS;
+      if (state == GameState.blackWon)
+         return BLACK_WINS;
+      if (state == GameState.draw)
+         return DRAW;
+      return UNKNOWN;
+   }
+
+   /** Tag value, or null if the tag is not present */
+   public String tag(String name)
+   {
+      return tags.get(name);
+   }
+
+   public Map<String, String> tags()
+   {
+      return new LinkedHashMap<String, String>(tags);
+   }
+
+   public Position start()
+   {
+      return new Position(start);
+   }
+
+   public int moveCount()
+   {
+      return moves.length;
+   }
+
+   public int move(int i)
+   {
+      return moves[i];
+   }
+
+   public String result()
+   {
+      return result;
+   }
+
+   /** Replay the moves through the rules and return the resulting game */
+   public Game replay()
+   {
+      Game game = new Game(start);
+      game.setDrawRules(false, 0); // the record says when the game ended
+      for (int move : moves)
+         game.play(move);
+      return game;
+   }
+}
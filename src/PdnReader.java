@@ -0,0 +1,375 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Streaming PDN reader: returns one game at a time from a Reader of any size,
+ * holding only the game being parsed. Every move is replayed through Game as
+ * it is read, so a returned game is known to be legal.
+ *
+ * Moves are written with standard square numbers ("11-15", "15x24" or the full
+ * path "15x24x31"). Comments, variations, NAGs and move numbers are skipped.
+ * A game that does not parse or replay is skipped and reported with a
+ * PdnException; the next call to next() carries on with the following game.
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class PdnReader implements Closeable
+{
+   /** A game that could not be read; the reader has moved past it */
+   public static final class PdnException extends IOException
+   {
+      private static final long serialVersionUID = 1L;
+
+      PdnException(String message)
+      {
+         super(message);
+      }
+   }
+
+   private final Reader in;
+   private final char[] buffer = new char[1 << 16];
+   private int length;
+   private int index;
+   private long charsRead;
+   private int line = 1;
+   private long games;
+   private final StringBuilder token = new StringBuilder();
+   private final int[] path = new int[Search.MAX_PLY];
+   private final int[][] moves = new int[Search.MAX_PLY][MoveGenerator.MAX_MOVES];
+
+   public PdnReader(Reader in)
+   {
+      this.in = in;
+   }
+
+   /** Return the next game, or null at the end of the input */
+   public PdnGame next() throws IOException
+   {
+      Map<String, String> tags = new LinkedHashMap<String, String>();
+      Game game = null;
+      String result = PdnGame.UNKNOWN;
+      boolean any = false;
+      int startLine = 0;
+      while (true)
+      {
+         int c = skipSeparators();
+         if (c < 0)
+         {
+            if (!any)
+               return null;
+            break;
+         }
+         if (!any)
+            startLine = line;
+         if (c == '[')
+         {
+            if (game != null)
+               break; // a new game's tags without a result for this one
+            readTag(tags);
+            any = true;
+            continue;
+         }
+         String move = readToken();
+         any = true;
+         if (isResult(move))
+         {
+            result = move;
+            break;
+         }
+         move = stripDecorations(move);
+         if (move.isEmpty())
+            continue;
+         try
+         {
+            if (game == null)
+               game = newGame(tags);
+            playMove(game, move);
+         }
+         catch (IllegalArgumentException | IllegalStateException e)
+         {
+            ++games;
+            skipGame();
+            throw new PdnException("Game " + games + " at line " + startLine + ": " + e.getMessage());
+         }
+      }
+      ++games;
+      try
+      {
+         if (game == null)
+            game = newGame(tags);
+      }
+      catch (IllegalArgumentException e)
+      {
+         throw new PdnException("Game " + games + " at line " + startLine + ": " + e.getMessage());
+      }
+      return PdnGame.of(game, tags, result);
+   }
+
+   /** Number of characters consumed so far */
+   public long charsRead()
+   {
+      return charsRead - (length - index);
+   }
+
+   /** Number of games returned or skipped so far */
+   public long games()
+   {
+      return games;
+   }
+
+   @Override
+   public void close() throws IOException
+   {
+      in.close();
+   }
+
+   private static Position start(Map<String, String> tags)
+   {
+      String fen = tags.get("FEN");
+      return (fen == null) ? Position.start() : Position.fromFen(fen);
+   }
+
+   // A game from the FEN tag; a record can play on past a repetition or the move limit, so no automatic draws
+   private static Game newGame(Map<String, String> tags)
+   {
+      Game game = new Game(start(tags));
+      game.setDrawRules(false, 0);
+      return game;
+   }
+
+   private static boolean isResult(String token)
+   {
+      return token.equals("1-0") || token.equals("0-1") || token.equals("2-0") || token.equals("0-2")
+            || token.equals("1-1") || token.equals("1/2-1/2") || token.equals("*");
+   }
+
+   // Drop a leading move number ("12." or "12...") and trailing annotations ("!", "?")
+   private static String stripDecorations(String token)
+   {
+      int begin = 0;
+      while (begin < token.length() && Character.isDigit(token.charAt(begin)))
+         ++begin;
+      if (begin < token.length() && token.charAt(begin) == '.')
+      {
+         while (begin < token.length() && token.charAt(begin) == '.')
+            ++begin;
+      }
+      else
+         begin = 0;
+      int end = token.length();
+      while (end > begin && (token.charAt(end - 1) == '!' || token.charAt(end - 1) == '?'))
+         --end;
+      return token.substring(begin, end);
+   }
+
+   // Play one PDN move, which may be a whole multi-jump, as one or more engine moves
+   private void playMove(Game game, String move)
+   {
+      boolean capture = move.indexOf('x') >= 0;
+      String[] parts = move.split(capture ? "x" : "-");
+      if (parts.length < 2 || !capture && parts.length != 2)
+         throw new IllegalArgumentException("Bad move " + move);
+      int[] squares = new int[parts.length];
+      for (int i = 0; i < parts.length; ++i)
+      {
+         try
+         {
+            squares[i] = Bitboard.fromNumber(Integer.parseInt(parts[i]));
+         }
+         catch (NumberFormatException e)
+         {
+            squares[i] = -1;
+         }
+         if (squares[i] < 0)
+            throw new IllegalArgumentException("Bad move " + move);
+      }
+
+      int side = game.sideToMove();
+      if (!capture)
+      {
+         int m = game.find(squares[0], squares[1]);
+         if (m == Move.NONE || Move.isCapture(m))
+            throw new IllegalArgumentException("Illegal move " + move + " in " + game.position().toFen());
+         game.play(m);
+         return;
+      }
+      for (int i = 0; i + 1 < squares.length; ++i)
+      {
+         // Squares left out between two listed ones are filled in by searching the jumps;
+         // the shortest path wins, so a fully written path is followed one jump at a time
+         boolean last = i + 2 == squares.length;
+         Position p = new Position(game.position());
+         int steps = -1;
+         for (int limit = 1; steps < 0 && limit <= path.length; ++limit)
+            steps = jumpPath(p, squares[i], squares[i + 1], last, 0, limit);
+         if (steps <= 0)
+            throw new IllegalArgumentException("Illegal capture " + move + " in " + game.position().toFen());
+         for (int s = 0; s < steps; ++s)
+            game.play(path[s]);
+      }
+      if (game.sideToMove() == side && !game.isOver())
+         throw new IllegalArgumentException("Incomplete capture " + move + " in " + game.position().toFen());
+   }
+
+   // Find up to "limit" jumps by the piece on "from" that land on "to" (ending the turn if "last");
+   // fills path and returns its length
+   private int jumpPath(Position p, int from, int to, boolean last, int depth, int limit)
+   {
+      if (depth >= limit)
+         return -1;
+      int[] list = moves[depth];
+      int n = MoveGenerator.generate(p, list);
+      int side = p.sideToMove();
+      for (int i = 0; i < n; ++i)
+      {
+         int m = list[i];
+         if (!Move.isCapture(m) || Move.from(m) != from)
+            continue;
+         path[depth] = m;
+         p.makeMove(m);
+         boolean turnOver = p.sideToMove() != side;
+         int found = -1;
+         if (Move.to(m) == to && (turnOver || !last))
+            found = depth + 1;
+         else if (!turnOver)
+            found = jumpPath(p, Move.to(m), to, last, depth + 1, limit);
+         p.unmakeMove();
+         if (found > 0)
+            return found;
+      }
+      return -1;
+   }
+
+   // ---- Lexer ----
+
+   private int peek() throws IOException
+   {
+      if (index == length)
+      {
+         length = in.read(buffer, 0, buffer.length);
+         index = 0;
+         if (length <= 0)
+         {
+            length = 0;
+            return -1;
+         }
+         charsRead += length;
+      }
+      return buffer[index];
+   }
+
+   private int read() throws IOException
+   {
+      int c = peek();
+      if (c >= 0)
+      {
+         ++index;
+         if (c == '\n')
+            ++line;
+      }
+      return c;
+   }
+
+   // Skip white space, comments, variations and NAGs; return the next character without consuming it
+   private int skipSeparators() throws IOException
+   {
+      while (true)
+      {
+         int c = peek();
+         if (c < 0)
+            return c;
+         if (Character.isWhitespace(c))
+            read();
+         else if (c == '{')
+            skipUntil('}');
+         else if (c == ';')
+            skipUntil('\n');
+         else if (c == '(')
+            skipVariation();
+         else if (c == '$')
+         {
+            read();
+            while (peek() >= 0 && Character.isDigit(peek()))
+               read();
+         }
+         else
+            return c;
+      }
+   }
+
+   private void skipUntil(int end) throws IOException
+   {
+      int c;
+      do
+         c = read();
+      while (c >= 0 && c != end);
+   }
+
+   private void skipVariation() throws IOException
+   {
+      int depth = 0;
+      int c;
+      while ((c = read()) >= 0)
+      {
+         if (c == '(')
+            ++depth;
+         else if (c == ')' && --depth == 0)
+            return;
+         else if (c == '{')
+            skipUntil('}');
+      }
+   }
+
+   private String readToken() throws IOException
+   {
+      token.setLength(0);
+      int c;
+      while ((c = peek()) >= 0 && !Character.isWhitespace(c) && c != '[' && c != '{' && c != '(' && c != ';')
+         token.append((char) read());
+      return token.toString();
+   }
+
+   private void readTag(Map<String, String> tags) throws IOException
+   {
+      read(); // '['
+      StringBuilder name = new StringBuilder();
+      int c;
+      while ((c = peek()) >= 0 && c != '"' && c != ']')
+      {
+         if (!Character.isWhitespace(c))
+            name.append((char) c);
+         read();
+      }
+      StringBuilder value = new StringBuilder();
+      if (c == '"')
+      {
+         read();
+         while ((c = read()) >= 0 && c != '"')
+         {
+            if (c == '\\')
+               c = read();
+            if (c >= 0)
+               value.append((char) c);
+         }
+      }
+      skipUntil(']');
+      tags.put(name.toString(), value.toString());
+   }
+
+   // Move past the rest of a game that failed: up to its result or the next tag section
+   private void skipGame() throws IOException
+   {
+      while (true)
+      {
+         int c = skipSeparators();
+         if (c < 0 || c == '[')
+            return;
+         if (isResult(readToken()))
+            return;
+      }
+   }
+}
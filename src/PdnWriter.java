@@ -0,0 +1,126 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Streaming PDN writer. Each game is written as its tag pairs followed by the
+ * move text, with a multi-jump written as one move along its full path
+ * ("15x24x31"), lines wrapped at 80 characters and a blank line after the result.
+ * Moves can carry comments, written in braces after the move.
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class PdnWriter implements Closeable, Flushable
+{
+   private static final int LINE_WIDTH = 80;
+
+   private final Writer out;
+   private final StringBuilder move = new StringBuilder();
+   private int column;
+
+   public PdnWriter(Writer out)
+   {
+      this.out = (out instanceof BufferedWriter) ? out : new BufferedWriter(out, 1 << 16);
+   }
+
+   /** Write a game played through the Game API */
+   public void write(Game game, Map<String, String> tags) throws IOException
+   {
+      write(PdnGame.of(game, tags));
+   }
+
+   public void write(PdnGame game) throws IOException
+   {
+      write(game, null);
+   }
+
+   /**
+    * Write a game with comments: comments[i], when not null, follows the move
+    * whose last step is game.move(i). comments may be null.
+    */
+   public void write(PdnGame game, String[] comments) throws IOException
+   {
+      Position p = game.start();
+      Map<String, String> tags = game.tags();
+      if (!tags.containsKey("FEN") && !p.toFen().equals(Position.start().toFen()))
+         tags.put("FEN", p.toFen());
+      tags.put("Result", game.result());
+      for (Map.Entry<String, String> tag : tags.entrySet())
+      {
+         out.write('[');
+         out.write(tag.getKey());
+         out.write(" \"");
+         out.write(escape(tag.getValue()));
+         out.write("\"]\n");
+      }
+
+      column = 0;
+      int turn = 1;
+      if (p.sideToMove() == Position.BLACK && game.moveCount() > 0)
+         word(turn + "...");
+      move.setLength(0);
+      for (int i = 0; i < game.moveCount(); ++i)
+      {
+         int m = game.move(i);
+         int side = p.sideToMove();
+         if (move.length() == 0)
+         {
+            if (side == Position.RED)
+               word(turn + ".");
+            move.append(Bitboard.number(Move.from(m)));
+         }
+         move.append(Move.isCapture(m) ? 'x' : '-').append(Bitboard.number(Move.to(m)));
+         p.play(m);
+         // A multi-jump is one PDN move: write it once the turn passes
+         if (p.sideToMove() != side || i + 1 == game.moveCount())
+         {
+            word(move.toString());
+            move.setLength(0);
+            if (comments != null && comments[i] != null)
+               word("{" + comments[i].replace('}', ')') + "}");
+            if (side == Position.BLACK)
+               ++turn;
+         }
+      }
+      word(game.result());
+      out.write("\n\n");
+   }
+
+   @Override
+   public void flush() throws IOException
+   {
+      out.flush();
+   }
+
+   @Override
+   public void close() throws IOException
+   {
+      out.close();
+   }
+
+   // Write one word of move text, wrapping the line when it would get too long
+   private void word(String s) throws IOException
+   {
+      if (column > 0 && column + 1 + s.length() > LINE_WIDTH)
+      {
+         out.write('\n');
+         column = 0;
+      }
+      else if (column > 0)
+      {
+         out.write(' ');
+         ++column;
+      }
+      out.write(s);
+      column += s.length();
+   }
+
+   private static String escape(String value)
+   {
+      return value.replace("\\", "\\\\").replace("\"", "\\\"");
+   }
+}
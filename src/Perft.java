@@ -0,0 +1,70 @@
+/**
+ * Perft: counts the leaf nodes of the full move tree to a fixed depth.
+ * A multi-jump counts as one move, so the numbers are comparable with the
+ * published English draughts tables, and, for a VariantPosition, with the
+ * published tables of its variant.
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class Perft
+{
+   // Enough plies for the deepest perft plus the longest jump chains on the way
+   private static final int MAX_PLY = 256;
+
+   private final int[][] moves = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+   private long[][] variantMoves; // allocated on first use; a variant move is a whole turn, so MAX_PLY deep is plenty
+
+   /** Return the number of leaf nodes "depth" moves below p, which is left as it was */
+   public long perft(Position p, int depth)
+   {
+      return perft(p, depth, 0);
+   }
+
+   private long perft(Position p, int depth, int ply)
+   {
+      if (depth == 0)
+         return 1;
+      int[] list = moves[ply];
+      int n = MoveGenerator.generate(p, list);
+      long nodes = 0;
+      int side = p.sideToMove();
+      for (int i = 0; i < n; ++i)
+      {
+         p.makeMove(list[i]);
+         // The rest of a multi-jump belongs to the same move
+         if (p.sideToMove() == side)
+            nodes += perft(p, depth, ply + 1);
+         else
+            nodes += perft(p, depth - 1, ply + 1);
+         p.unmakeMove();
+      }
+      return nodes;
+   }
+
+   /** Return the number of leaf nodes "depth" moves below p, which is left as it was */
+   public long perft(VariantPosition p, int depth)
+   {
+      if (variantMoves == null)
+         variantMoves = new long[MAX_PLY][VariantMoveGenerator.MAX_MOVES];
+      return perft(p, depth, 0);
+   }
+
+   private long perft(VariantPosition p, int depth, int ply)
+   {
+      if (depth == 0)
+         return 1;
+      long[] list = variantMoves[ply];
+      int n = VariantMoveGenerator.generate(p, list);
+      if (depth == 1)
+         return n;
+      long nodes = 0;
+      for (int i = 0; i < n; ++i)
+      {
+         p.makeMove(list[i]);
+         nodes += perft(p, depth - 1, ply + 1);
+         p.unmakeMove();
+      }
+      return nodes;
+   }
+}
@@ -0,0 +1,98 @@
+import java.lang.management.ManagementFactory;
+
+/**
+ * Perft benchmark for the move generator.
+ * Runs perft from the initGame() start position and from a few mid-game and
+ * king-heavy positions, checks every count and reports nodes per second and
+ * the bytes allocated per perft call on the benchmark thread. The rules
+ * engine for other board sizes (VariantPosition) is checked the same way,
+ * against the same English numbers and the published international ones.
+ *
+ * Usage: java PerftBenchmark [measured iterations] [warmup iterations]
+ *
+ * @author Zach McGuckin
+ *
+ */
+public class PerftBenchmark
+{
+   // name, FEN ("start" for the initGame() layout), depth, expected leaf count
+   private static final Object[][] POSITIONS =
+   {
+      // Published English draughts perft for the start position
+      { "start", "start", 10, 18391564L },
+      { "midgame-1", "B:W15,18,19,21,23,24,26,27,29,30,31,32:B1,2,3,5,6,7,8,9,10,12,13,16", 10, 1350893L },
+      { "midgame-2", "W:W17,20,22,24,25,26,27,28,31:B2,3,4,6,9,10,11,13,14,15", 10, 1342294L },
+      { "kings-1", "B:WK10,K14,K27,28,29:BK3,5,8,K19,K22", 8, 3926664L },
+      { "kings-2", "W:WK1,K5,K9,K30:BK17,K20,K25,K32", 10, 9568022L },
+   };
+
+   // name, variant, FEN ("start" for the variant's layout), depth, expected leaf count
+   private static final Object[][] VARIANT_POSITIONS =
+   {
+      { "v-english", Variant.ENGLISH, "start", 10, 18391564L },
+      { "v-kings-1", Variant.ENGLISH, "B:WK10,K14,K27,28,29:BK3,5,8,K19,K22", 8, 3926664L },
+      // Published international draughts perft for the start position
+      { "intl-start", Variant.INTERNATIONAL, "start", 8, 6483961L },
+   };
+
+   public static void main(String[] args)
+   {
+      int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : 5;
+      int warmup = (args.length > 1) ? Integer.parseInt(args[1]) : 2;
+
+      com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+      long thread = Thread.currentThread().getId();
+      Perft perft = new Perft();
+      boolean failed = false;
+
+      for (Object[] row : POSITIONS)
+      {
+         String fen = (String) row[1];
+         Object start = fen.equals("start") ? Position.start() : Position.fromFen(fen);
+         failed |= !run(perft, (String) row[0], start, (Integer) row[2], (Long) row[3], iterations, warmup, threads, thread);
+      }
+      for (Object[] row : VARIANT_POSITIONS)
+      {
+         Variant variant = (Variant) row[1];
+         String fen = (String) row[2];
+         Object start = fen.equals("start") ? VariantPosition.start(variant) : VariantPosition.fromFen(variant, fen);
+         failed |= !run(perft, (String) row[0], start, (Integer) row[3], (Long) row[4], iterations, warmup, threads, thread);
+      }
+      if (failed)
+         System.exit(1);
+   }
+
+   // Time perft of a Position or VariantPosition, print a line and return whether the count was right
+   private static boolean run(Perft perft, String name, Object start, int depth, long expected, int iterations,
+         int warmup, com.sun.management.ThreadMXBean threads, long thread)
+   {
+      for (int i = 0; i < warmup; ++i)
+         perft(perft, start, depth);
+
+      long nodes = 0;
+      long bytesBefore = threads.getThreadAllocatedBytes(thread);
+      long timeBefore = System.nanoTime();
+      for (int i = 0; i < iterations; ++i)
+      {
+         nodes = perft(perft, start, depth);
+         if (nodes != expected)
+            break;
+      }
+      long nanos = System.nanoTime() - timeBefore;
+      long bytes = threads.getThreadAllocatedBytes(thread) - bytesBefore;
+
+      boolean ok = nodes == expected;
+      double nodesPerSecond = (double) nodes * iterations * 1e9 / nanos;
+      System.out.printf("%-10s depth %2d  nodes %10d  %8.1f ms/op  %7.2f Mnps  %12d B/op  %s%n",
+            name, depth, nodes, nanos / 1e6 / iterations, nodesPerSecond / 1e6, bytes / iterations,
+            ok ? "OK" : "FAIL expected " + expected);
+      return ok;
+   }
+
+   private static long perft(Perft perft, Object start, int depth)
+   {
+      if (start instanceof VariantPosition)
+         return perft.perft((VariantPosition) start, depth);
+      return perft.perft((Position) start, depth);
+   }
+}
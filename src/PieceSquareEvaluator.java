@@ -0,0 +1,139 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The default evaluation: material, advancement of men, men kept on their own
+ * back row, men and kings in the centre, and mobility. Everything but mobility
+ * is folded into one piece-square table that the Position keeps summed as
+ * moves are made and taken back, so a leaf costs a table lookup plus a few
+ * shifts for the mobility count instead of a scan of the board.
+ *
+ * Weights can be read from a properties file, one "name = value" per line,
+ * so they can be tuned without recompiling; names not in the file keep their
+ * defaults:
+ *   man, king     material
+ *   advance       per row a man has moved towards crowning
+ *   backRank      per man still on its own back row
+ *   centre        per man on the four middle squares of rows 3 and 4
+ *   kingCentre    per king inside the middle four rows and columns
+ *   mobility      per simple move the side has more than the other
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class PieceSquareEvaluator implements Evaluator
+{
+   private static final String[] NAMES = { "man", "king", "advance", "backRank", "centre", "kingCentre", "mobility" };
+   private static final int[] DEFAULTS = { 100, 130, 3, 8, 5, 8, 2 };
+
+   private final int[] weights;
+   private final int[] table = new int[4 * Bitboard.SQUARES]; // see Position.setSquareTable
+   private final int mobility;
+
+   /** Evaluator with the default weights */
+   public PieceSquareEvaluator()
+   {
+      this(DEFAULTS);
+   }
+
+   private PieceSquareEvaluator(int[] weights)
+   {
+      this.weights = weights.clone();
+      int man = weights[0];
+      int king = weights[1];
+      int advance = weights[2];
+      int backRank = weights[3];
+      int centre = weights[4];
+      int kingCentre = weights[5];
+      mobility = weights[6];
+      for (int square = 0; square < Bitboard.SQUARES; ++square)
+      {
+         int row = Bitboard.row(square);
+         int col = Bitboard.col(square);
+         boolean middle = col >= 2 && col <= 5;
+         int menCentre = (middle && (row == 3 || row == 4)) ? centre : 0;
+         int kings = (middle && row >= 2 && row <= 5) ? kingCentre : 0;
+         // Red moves down from row 0, black up from row 7; black's values are negative
+         table[Position.RED_MAN * Bitboard.SQUARES + square] = man + advance * row + (row == 0 ? backRank : 0) + menCentre;
+         table[Position.BLACK_MAN * Bitboard.SQUARES + square] = -(man + advance * (7 - row) + (row == 7 ? backRank : 0) + menCentre);
+         table[Position.RED_KING * Bitboard.SQUARES + square] = king + kings;
+         table[Position.BLACK_KING * Bitboard.SQUARES + square] = -(king + kings);
+      }
+   }
+
+   /** Evaluator with the weights in a properties file, see the class comment */
+   public static PieceSquareEvaluator load(File file) throws IOException
+   {
+      Properties properties = new Properties();
+      try (InputStream in = new FileInputStream(file))
+      {
+         properties.load(in);
+      }
+      int[] weights = DEFAULTS.clone();
+      for (String name : properties.stringPropertyNames())
+      {
+         int i = java.util.Arrays.asList(NAMES).indexOf(name);
+         if (i < 0)
+            throw new IOException("Unknown weight " + name + " in " + file);
+         try
+         {
+            weights[i] = Integer.parseInt(properties.getProperty(name).trim());
+         }
+         catch (NumberFormatException e)
+         {
+            throw new IOException("Bad value for " + name + " in " + file + ": " + properties.getProperty(name));
+         }
+      }
+      return new PieceSquareEvaluator(weights);
+   }
+
+   /** The weights by name, in the order of the class comment */
+   public Map<String, Integer> weights()
+   {
+      Map<String, Integer> map = new LinkedHashMap<String, Integer>();
+      for (int i = 0; i < NAMES.length; ++i)
+         map.put(NAMES[i], weights[i]);
+      return map;
+   }
+
+   @Override
+   public void prepare(Position p)
+   {
+      p.setFeatureWeights(null, null);
+      p.setSquareTable(table);
+   }
+
+   @Override
+   public int evaluate(Position p)
+   {
+      // A position that was not prepared is still scored right, just more slowly
+      int score = (p.squareTable() == table) ? p.squareScore() : Position.squareScore(table, p.red(), p.black(), p.kings());
+      if (mobility != 0)
+         score += mobility * (simpleMoves(p.red(), p.red() & p.kings(), p.empty(), true)
+               - simpleMoves(p.black(), p.black() & p.kings(), p.empty(), false));
+      return (p.sideToMove() == Position.RED) ? score : -score;
+   }
+
+   // Number of simple moves open to a side's pieces, ignoring whether a jump is mandatory
+   private static int simpleMoves(int pieces, int kings, int empty, boolean down)
+   {
+      int forward = down ? Integer.bitCount(Bitboard.downLeft(pieces) & empty) + Integer.bitCount(Bitboard.downRight(pieces) & empty)
+            : Integer.bitCount(Bitboard.upLeft(pieces) & empty) + Integer.bitCount(Bitboard.upRight(pieces) & empty);
+      if (kings == 0)
+         return forward;
+      int backward = down ? Integer.bitCount(Bitboard.upLeft(kings) & empty) + Integer.bitCount(Bitboard.upRight(kings) & empty)
+            : Integer.bitCount(Bitboard.downLeft(kings) & empty) + Integer.bitCount(Bitboard.downRight(kings) & empty);
+      return forward + backward;
+   }
+
+   @Override
+   public String toString()
+   {
+      return weights().toString();
+   }
+}
@@ -0,0 +1,599 @@
+/**
+ * A checkers position stored as 32-bit bitboards (see Bitboard for the layout).
+ * Holds no Swing state so it can be used by the GUI, search and tools alike.
+ *
+ * makeMove/unmakeMove play and take back moves on a preallocated undo stack,
+ * so searching does not allocate. play() is the same move without the undo
+ * record, for callers that never take moves back.
+ *
+ * Piece counts and the set of pieces that can jump are kept up to date as
+ * moves are played, so material, mandatory jumps and game over are O(1).
+ * An evaluator can attach a piece-square table, whose sum over the pieces is
+ * kept up to date the same way, or the first layer of a network, whose sums
+ * (the accumulator) are kept one row per undo level: makeMove copies the row
+ * and adds the few changed features, and unmakeMove just steps back a row.
+ *
+ * For draws, the position counts the plies since the last capture or man move
+ * and keeps the hashes of the positions played through since then: only those
+ * can come back, so looking for a repetition compares at most that many
+ * hashes, and none at all after a man move or capture.
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class Position
+{
+   public static final int RED = 0;   // red moves first, down the board
+   public static final int BLACK = 1; // black moves up the board
+
+   // Piece types, indexing counts and the Zobrist keys
+   public static final int RED_MAN = 0;
+   public static final int RED_KING = 1;
+   public static final int BLACK_MAN = 2;
+   public static final int BLACK_KING = 3;
+
+   int red;    // red men and kings
+   int black;  // black men and kings
+   int kings;  // kings of either colour
+   int sideToMove;
+   int pending = -1; // square of the piece that must keep jumping, or -1
+   long hash;        // Zobrist hash, updated as moves are played
+   int jumpers;      // pieces of the side to move that can jump
+   final int[] counts = new int[4]; // number of pieces of each type
+   private int[] squareTable; // value of each piece type on each square, type * SQUARES + square, or null
+   private int squareScore;   // sum of squareTable over the pieces
+   private int[] featureWeights; // first network layer, (type * SQUARES + square) * width + unit, or null
+   private int[] featureBias;
+   private int[] accumulators;   // the layer's sums, one row of width per undo level; the current row is undoCount
+   private int quietPlies;    // plies since the last capture or man move
+   private long[] played = new long[16]; // hash before each ply played, back to at least the last capture or man move
+   private int playedCount;
+
+   // Undo stack: the state before each makeMove, allocated on first use and grown by doubling
+   private static final int UNDO_INTS = 8;
+   private int[] undoBoards;   // red, black, kings, pending << 1 | sideToMove, packed counts, jumpers, squareScore, quietPlies
+   private long[] undoHashes;
+   private int undoCount;
+
+   public Position()
+   {
+   }
+
+   public Position(Position other)
+   {
+      red = other.red;
+      black = other.black;
+      kings = other.kings;
+      sideToMove = other.sideToMove;
+      pending = other.pending;
+      hash = other.hash;
+      jumpers = other.jumpers;
+      System.arraycopy(other.counts, 0, counts, 0, counts.length);
+      squareTable = other.squareTable;
+      squareScore = other.squareScore;
+      if (other.featureWeights != null)
+      {
+         featureWeights = other.featureWeights;
+         featureBias = other.featureBias;
+         accumulators = java.util.Arrays.copyOfRange(other.accumulators, other.undoCount * featureBias.length,
+               (other.undoCount + 1) * featureBias.length);
+      }
+      // Only the plies since the last capture or man move matter for repetitions
+      quietPlies = other.quietPlies;
+      playedCount = Math.min(other.quietPlies, other.playedCount);
+      played = java.util.Arrays.copyOfRange(other.played, other.playedCount - playedCount,
+            other.playedCount - playedCount + Math.max(16, playedCount));
+   }
+
+   /** The layout set up by CheckersMain.initGame(): red on rows 0-2, black on rows 5-7, red to move */
+   public static Position start()
+   {
+      Position p = new Position();
+      p.red = 0x00000FFF;
+      p.black = 0xFFF00000;
+      p.sideToMove = RED;
+      p.refresh();
+      return p;
+   }
+
+   /**
+    * Parse a PDN FEN such as "B:W21,22,K30:B1,2,K9". Squares use the standard
+    * numbering (see Bitboard.number). PDN calls the first mover Black, which is
+    * our red, and the second mover White, which is our black.
+    */
+   public static Position fromFen(String fen)
+   {
+      Position p = new Position();
+      String[] fields = fen.trim().replace(".", "").split(":");
+      if (fields.length != 3 || fields[0].length() != 1)
+         throw new IllegalArgumentException("Bad FEN: " + fen);
+      p.sideToMove = colour(fields[0].charAt(0), fen);
+      for (int i = 1; i < 3; ++i)
+      {
+         if (fields[i].isEmpty())
+            throw new IllegalArgumentException("Bad FEN: " + fen);
+         int side = colour(fields[i].charAt(0), fen);
+         String list = fields[i].substring(1);
+         if (list.isEmpty())
+            continue;
+         for (String token : list.split(","))
+         {
+            boolean king = token.startsWith("K");
+            if (king)
+               token = token.substring(1);
+            String[] range = token.split("-");
+            try
+            {
+               int first = Integer.parseInt(range[0].trim());
+               int last = (range.length > 1) ? Integer.parseInt(range[1].trim()) : first;
+               for (int n = first; n <= last; ++n)
+               {
+                  int square = Bitboard.fromNumber(n);
+                  if (square < 0)
+                     throw new IllegalArgumentException("Bad FEN square " + n + ": " + fen);
+                  int bit = 1 << square;
+                  if (side == RED)
+                     p.red |= bit;
+                  else
+                     p.black |= bit;
+                  if (king)
+                     p.kings |= bit;
+               }
+            }
+            catch (NumberFormatException e)
+            {
+               throw new IllegalArgumentException("Bad FEN: " + fen, e);
+            }
+         }
+      }
+      if ((p.red & p.black) != 0)
+         throw new IllegalArgumentException("Bad FEN, square used twice: " + fen);
+      p.refresh();
+      return p;
+   }
+
+   /** Set up the pieces from bitboards, with no multi-jump pending */
+   void set(int red, int black, int kings, int sideToMove)
+   {
+      this.red = red;
+      this.black = black;
+      this.kings = kings;
+      this.sideToMove = sideToMove;
+      pending = -1;
+      quietPlies = 0;
+      playedCount = 0;
+      refresh();
+   }
+
+   // Recompute the hash, counts and jumpers from the bitboards
+   private void refresh()
+   {
+      hash = Zobrist.hash(this);
+      counts[RED_MAN] = Integer.bitCount(red & ~kings);
+      counts[RED_KING] = Integer.bitCount(red & kings);
+      counts[BLACK_MAN] = Integer.bitCount(black & ~kings);
+      counts[BLACK_KING] = Integer.bitCount(black & kings);
+      jumpers = MoveGenerator.jumpers(this, (pending >= 0) ? 1 << pending : own());
+      if (squareTable != null)
+         squareScore = squareScore(squareTable, red, black, kings);
+      if (featureWeights != null)
+         accumulate(featureWeights, featureBias, red, black, kings, accumulators, undoCount * featureBias.length);
+   }
+
+   /**
+    * Keep the sum of a piece-square table over the pieces up to date from now
+    * on, see squareScore(). The table holds a value for each piece type on
+    * each square at type * SQUARES + square, from red's point of view, and
+    * must not change while attached. Null detaches it.
+    */
+   public void setSquareTable(int[] table)
+   {
+      if (table == squareTable)
+         return;
+      squareTable = table;
+      if (table == null)
+         return;
+      squareScore = squareScore(table, red, black, kings);
+      // Moves already on the undo stack take back to scores from this table too
+      for (int i = 0; i < undoCount * UNDO_INTS; i += UNDO_INTS)
+         undoBoards[i + 6] = squareScore(table, undoBoards[i], undoBoards[i + 1], undoBoards[i + 2]);
+   }
+
+   /** The attached piece-square table, or null */
+   public int[] squareTable()
+   {
+      return squareTable;
+   }
+
+   /**
+    * Keep the first layer of a network up to date from now on, see
+    * accumulators(). Its inputs are one feature per piece type and square,
+    * numbered type * SQUARES + square as for setSquareTable; "weights" holds
+    * the weights of feature f at f * width .. f * width + width - 1, where
+    * width is bias.length. Neither may change while attached. Null detaches.
+    */
+   public void setFeatureWeights(int[] weights, int[] bias)
+   {
+      if (weights == featureWeights && bias == featureBias)
+         return;
+      featureWeights = weights;
+      featureBias = bias;
+      if (weights == null)
+      {
+         accumulators = null;
+         return;
+      }
+      int width = bias.length;
+      int levels = (undoHashes == null) ? 1 : undoHashes.length + 1;
+      accumulators = new int[levels * width];
+      // Rows for the moves already on the undo stack, then the current one
+      for (int i = 0; i < undoCount; ++i)
+      {
+         int u = i * UNDO_INTS;
+         accumulate(weights, bias, undoBoards[u], undoBoards[u + 1], undoBoards[u + 2], accumulators, i * width);
+      }
+      accumulate(weights, bias, red, black, kings, accumulators, undoCount * width);
+   }
+
+   /** The attached first-layer weights, or null */
+   public int[] featureWeights()
+   {
+      return featureWeights;
+   }
+
+   /**
+    * The first-layer sums for this position are accumulators()[accumulatorOffset()]
+    * onwards, one per unit of the attached layer; the array changes as moves are made
+    */
+   public int[] accumulators()
+   {
+      return accumulators;
+   }
+
+   public int accumulatorOffset()
+   {
+      return undoCount * featureBias.length;
+   }
+
+   /** Sum a first layer (see setFeatureWeights) over the given pieces into out[offset..] */
+   public static void accumulate(int[] weights, int[] bias, int red, int black, int kings, int[] out, int offset)
+   {
+      int width = bias.length;
+      System.arraycopy(bias, 0, out, offset, width);
+      for (int b = red | black; b != 0; b &= b - 1)
+      {
+         int square = Integer.numberOfTrailingZeros(b);
+         int type = (((red >>> square) & 1) != 0 ? RED_MAN : BLACK_MAN) | ((kings >>> square) & 1);
+         int w = (type * Bitboard.SQUARES + square) * width;
+         for (int j = 0; j < width; ++j)
+            out[offset + j] += weights[w + j];
+      }
+   }
+
+   /** Plies played since the last capture or man move */
+   public int quietPlies()
+   {
+      return quietPlies;
+   }
+
+   /**
+    * Number of times this position, with the same side to move, occurred
+    * before in the moves played or made since the last capture or man move
+    */
+   public int repetitions()
+   {
+      int count = 0;
+      // Quiet plies alternate sides, and a position cannot come back in under four
+      for (int i = playedCount - 4, oldest = Math.max(0, playedCount - quietPlies); i >= oldest; i -= 2)
+      {
+         if (played[i] == hash)
+            ++count;
+      }
+      return count;
+   }
+
+   /** True if repetitions() is not 0, found with no more work than it needs */
+   public boolean isRepeated()
+   {
+      for (int i = playedCount - 4, oldest = Math.max(0, playedCount - quietPlies); i >= oldest; i -= 2)
+      {
+         if (played[i] == hash)
+            return true;
+      }
+      return false;
+   }
+
+   /** Sum of the attached piece-square table over the pieces, or 0 if there is none */
+   public int squareScore()
+   {
+      return squareScore;
+   }
+
+   /** Sum of a piece-square table (see setSquareTable) over the given pieces */
+   public static int squareScore(int[] table, int red, int black, int kings)
+   {
+      int score = 0;
+      for (int b = red; b != 0; b &= b - 1)
+      {
+         int square = Integer.numberOfTrailingZeros(b);
+         score += table[(((kings >>> square) & 1) == 0 ? RED_MAN : RED_KING) * Bitboard.SQUARES + square];
+      }
+      for (int b = black; b != 0; b &= b - 1)
+      {
+         int square = Integer.numberOfTrailingZeros(b);
+         score += table[(((kings >>> square) & 1) == 0 ? BLACK_MAN : BLACK_KING) * Bitboard.SQUARES + square];
+      }
+      return score;
+   }
+
+   private static int colour(char c, String fen)
+   {
+      if (c == 'B')
+         return RED;
+      if (c == 'W')
+         return BLACK;
+      throw new IllegalArgumentException("Bad FEN colour '" + c + "': " + fen);
+   }
+
+   /** Return this position as a PDN FEN, see fromFen */
+   public String toFen()
+   {
+      StringBuilder sb = new StringBuilder();
+      sb.append(sideToMove == RED ? 'B' : 'W');
+      sb.append(":W");
+      appendSquares(sb, black);
+      sb.append(":B");
+      appendSquares(sb, red);
+      return sb.toString();
+   }
+
+   private void appendSquares(StringBuilder sb, int pieces)
+   {
+      boolean first = true;
+      for (int n = 1; n <= Bitboard.SQUARES; ++n)
+      {
+         int bit = 1 << Bitboard.fromNumber(n);
+         if ((pieces & bit) == 0)
+            continue;
+         if (!first)
+            sb.append(',');
+         if ((kings & bit) != 0)
+            sb.append('K');
+         sb.append(n);
+         first = false;
+      }
+   }
+
+   public int red()
+   {
+      return red;
+   }
+
+   public int black()
+   {
+      return black;
+   }
+
+   public int kings()
+   {
+      return kings;
+   }
+
+   public int empty()
+   {
+      return ~(red | black);
+   }
+
+   public int sideToMove()
+   {
+      return sideToMove;
+   }
+
+   /** Number of pieces of a type, e.g. RED_KING */
+   public int count(int type)
+   {
+      return counts[type];
+   }
+
+   /** Number of men and kings of a side */
+   public int pieceCount(int side)
+   {
+      return (side == RED) ? counts[RED_MAN] + counts[RED_KING] : counts[BLACK_MAN] + counts[BLACK_KING];
+   }
+
+   /** Pieces of the side to move that can jump; jumping is mandatory when this is not 0 */
+   public int jumpers()
+   {
+      return jumpers;
+   }
+
+   /** Zobrist hash of the pieces, the side to move and any pending multi-jump */
+   public long hash()
+   {
+      return hash;
+   }
+
+   /** Square of the piece in the middle of a multi-jump, or -1 */
+   public int pending()
+   {
+      return pending;
+   }
+
+   /** Pieces of the side to move */
+   public int own()
+   {
+      return (sideToMove == RED) ? red : black;
+   }
+
+   /** Pieces of the side not to move */
+   public int opponent()
+   {
+      return (sideToMove == RED) ? black : red;
+   }
+
+   /** Play a move produced by MoveGenerator so that unmakeMove() can take it back */
+   public void makeMove(int move)
+   {
+      if (undoHashes == null || undoCount == undoHashes.length)
+         growUndo();
+      int i = undoCount * UNDO_INTS;
+      undoBoards[i] = red;
+      undoBoards[i + 1] = black;
+      undoBoards[i + 2] = kings;
+      undoBoards[i + 3] = (pending << 1) | sideToMove;
+      undoBoards[i + 4] = counts[RED_MAN] | (counts[RED_KING] << 8) | (counts[BLACK_MAN] << 16) | (counts[BLACK_KING] << 24);
+      undoBoards[i + 5] = jumpers;
+      undoBoards[i + 6] = squareScore;
+      undoBoards[i + 7] = quietPlies;
+      undoHashes[undoCount++] = hash;
+      if (featureWeights != null)
+      {
+         int width = featureBias.length;
+         System.arraycopy(accumulators, (undoCount - 1) * width, accumulators, undoCount * width, width);
+      }
+      play(move);
+   }
+
+   /** Take back the last makeMove(), including any captured piece and crowning */
+   public void unmakeMove()
+   {
+      int i = --undoCount * UNDO_INTS;
+      red = undoBoards[i];
+      black = undoBoards[i + 1];
+      kings = undoBoards[i + 2];
+      pending = undoBoards[i + 3] >> 1;
+      sideToMove = undoBoards[i + 3] & 1;
+      int packed = undoBoards[i + 4];
+      counts[RED_MAN] = packed & 0xFF;
+      counts[RED_KING] = (packed >>> 8) & 0xFF;
+      counts[BLACK_MAN] = (packed >>> 16) & 0xFF;
+      counts[BLACK_KING] = packed >>> 24;
+      jumpers = undoBoards[i + 5];
+      squareScore = undoBoards[i + 6];
+      quietPlies = undoBoards[i + 7];
+      hash = undoHashes[undoCount];
+      --playedCount;
+   }
+
+   /** Number of moves that unmakeMove() can take back */
+   public int undoDepth()
+   {
+      return undoCount;
+   }
+
+   private void growUndo()
+   {
+      int capacity = (undoHashes == null) ? 256 : undoHashes.length * 2;
+      int[] boards = new int[capacity * UNDO_INTS];
+      long[] hashes = new long[capacity];
+      if (undoHashes != null)
+      {
+         System.arraycopy(undoBoards, 0, boards, 0, undoCount * UNDO_INTS);
+         System.arraycopy(undoHashes, 0, hashes, 0, undoCount);
+      }
+      undoBoards = boards;
+      undoHashes = hashes;
+      if (featureWeights != null)
+         accumulators = java.util.Arrays.copyOf(accumulators, (capacity + 1) * featureBias.length);
+   }
+
+   /** Play a move produced by MoveGenerator for this position, without an undo record */
+   public void play(int move)
+   {
+      // Positions before a capture or man move cannot come back; with nothing to take back, forget them
+      boolean quiet = !Move.isCapture(move) && (kings & (1 << Move.from(move))) != 0;
+      if (!quiet && undoCount == 0)
+         playedCount = 0;
+      if (playedCount == played.length)
+         played = java.util.Arrays.copyOf(played, playedCount * 2);
+      played[playedCount++] = hash;
+      quietPlies = quiet ? quietPlies + 1 : 0;
+
+      int from = 1 << Move.from(move);
+      int to = 1 << Move.to(move);
+      int fromTo = from | to;
+      int type = pieceType(from);
+      int toType = Move.isCrowning(move) ? type | 1 : type;
+      hash ^= Zobrist.PIECE[type][Move.from(move)];
+      hash ^= Zobrist.PIECE[toType][Move.to(move)];
+      if (squareTable != null)
+         squareScore += squareTable[toType * Bitboard.SQUARES + Move.to(move)] - squareTable[type * Bitboard.SQUARES + Move.from(move)];
+      if (featureWeights != null)
+         updateAccumulator(move, type, toType);
+      if (sideToMove == RED)
+         red ^= fromTo;
+      else
+         black ^= fromTo;
+      if ((kings & from) != 0)
+         kings ^= fromTo;
+
+      if (Move.isCapture(move))
+      {
+         int capturedType = pieceType(1 << Move.captured(move));
+         hash ^= Zobrist.PIECE[capturedType][Move.captured(move)];
+         if (squareTable != null)
+            squareScore -= squareTable[capturedType * Bitboard.SQUARES + Move.captured(move)];
+         --counts[capturedType];
+         int captured = ~(1 << Move.captured(move));
+         red &= captured;
+         black &= captured;
+         kings &= captured;
+      }
+      if (Move.isCrowning(move))
+      {
+         kings |= to;
+         --counts[type];
+         ++counts[type | 1];
+      }
+
+      if (pending >= 0)
+         hash ^= Zobrist.PENDING[pending];
+      // A jump that did not crown continues while the same piece can jump again
+      if (Move.isCapture(move) && !Move.isCrowning(move) && MoveGenerator.jumpers(this, to) != 0)
+      {
+         pending = Move.to(move);
+         hash ^= Zobrist.PENDING[pending];
+         jumpers = to;
+      }
+      else
+      {
+         pending = -1;
+         sideToMove ^= 1;
+         hash ^= Zobrist.BLACK_TO_MOVE;
+         jumpers = MoveGenerator.jumpers(this, own());
+      }
+   }
+
+   // Add a move's changed features to the current accumulator row, before the boards change
+   private void updateAccumulator(int move, int type, int toType)
+   {
+      int width = featureBias.length;
+      int[] acc = accumulators;
+      int[] w = featureWeights;
+      int o = undoCount * width;
+      int add = (toType * Bitboard.SQUARES + Move.to(move)) * width;
+      int sub = (type * Bitboard.SQUARES + Move.from(move)) * width;
+      if (Move.isCapture(move))
+      {
+         int cap = (pieceType(1 << Move.captured(move)) * Bitboard.SQUARES + Move.captured(move)) * width;
+         for (int j = 0; j < width; ++j)
+            acc[o + j] += w[add + j] - w[sub + j] - w[cap + j];
+      }
+      else
+      {
+         for (int j = 0; j < width; ++j)
+            acc[o + j] += w[add + j] - w[sub + j];
+      }
+   }
+
+   /** Return the piece type on the square "bit", or -1 if it is empty */
+   int pieceType(int bit)
+   {
+      int king = ((kings & bit) != 0) ? 1 : 0;
+      if ((red & bit) != 0)
+         return RED_MAN + king;
+      if ((black & bit) != 0)
+         return BLACK_MAN + king;
+      return -1;
+   }
+}
@@ -0,0 +1,513 @@
+/**
+ * Alpha-beta (negamax) search with iterative deepening for the computer player.
+ * The search is bounded by a fixed depth, a time budget or both. At the horizon
+ * it keeps following forced captures (quiescence) so it never stops in the
+ * middle of an exchange. Results are cached in a TranspositionTable that can be
+ * kept from move to move or shared by the threads of a ParallelSearch.
+ * Moves are tried best first: the table's move, then captures (kings and
+ * crownings first), then quiet moves by their history score, with killer moves
+ * winning ties. Positions are scored by an Evaluator, PieceSquareEvaluator
+ * unless another is given. A position that repeats one earlier in the search
+ * or the game, or that reaches the move limit, is scored as a draw.
+ * Holds no Swing state and is meant to run off the EDT.
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class Search
+{
+   public static final int WIN = 100000;     // score of a won position, less the plies to get there
+   public static final int MAX_PLY = 128;
+   public static final int TABLEBASE_WIN = WIN / 2; // a won endgame, plus material so the search makes progress
+
+   private static final Evaluator DEFAULT_EVALUATOR = new PieceSquareEvaluator();
+
+   // Totals over every search, see Metrics
+   private static final Metrics.Counter SEARCHES = Metrics.counter("search.moves");
+   private static final Metrics.Counter NODES = Metrics.counter("search.nodes");
+   private static final Metrics.Counter NANOS = Metrics.counter("search.nanos");
+   private static final Metrics.Counter PROBES = Metrics.counter("search.tt.probes");
+   private static final Metrics.Counter HITS = Metrics.counter("search.tt.hits");
+   private static final Metrics.Counter ALLOCATED = Metrics.counter("search.allocatedBytes");
+   static
+   {
+      Metrics.rate("search.nodesPerSecond", "search.nodes", "search.nanos", 1e9);
+      Metrics.rate("search.tt.hitRate", "search.tt.hits", "search.tt.probes", 1);
+      Metrics.rate("search.bytesPerMove", "search.allocatedBytes", "search.moves", 1);
+   }
+
+   // Ordering scores: the table move, then captures, then quiet moves by history. Killers only
+   // break ties between quiet moves; ranked above all history they cost more nodes than they saved.
+   private static final int HINT_ORDER = 1 << 30;
+   private static final int CAPTURE_ORDER = 1 << 29;
+   private static final int KILLER_BONUS = 16;
+   private static final int HISTORY_LIMIT = 1 << 20; // history is halved when an entry passes this
+
+   private final int[][] moves = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+   private final int[][] order = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+   private final int[] killers = new int[MAX_PLY * 2]; // two quiet moves per ply that last caused a cutoff
+   private final int[] history = new int[2 * Bitboard.SQUARES * Bitboard.SQUARES]; // by side, from, to
+   private final TranspositionTable tt;
+   private final Tablebase tablebase; // or null
+   private final Evaluator evaluator;
+
+   private volatile boolean stopped;
+   private long deadline;
+   private long nodes;
+   private long interiorNodes; // nodes whose moves were searched
+   private long movesSearched;
+   private long cutoffs;
+   private long firstMoveCutoffs;
+   // Table use by this thread alone, so the threads of a ParallelSearch do not share counters
+   private long probes;
+   private long hits;
+   private long stores;
+   private long collisions;
+   private final int helper; // 0 for a search on its own or the main thread of a ParallelSearch
+   private int drawPlies = Game.DEFAULT_MOVE_LIMIT * 2; // quiet plies that draw, or 0 for no limit
+
+   /** Search with a table of its own of the given size */
+   public Search(int hashMegabytes)
+   {
+      this(new TranspositionTable(hashMegabytes));
+   }
+
+   /** Search using (and adding to) an existing table */
+   public Search(TranspositionTable tt)
+   {
+      this(tt, null);
+   }
+
+   /** Search that also looks up endgames in a tablebase, which may be null */
+   public Search(TranspositionTable tt, Tablebase tablebase)
+   {
+      this(tt, tablebase, null);
+   }
+
+   /** Search with its own evaluation; null means the default PieceSquareEvaluator */
+   public Search(TranspositionTable tt, Tablebase tablebase, Evaluator evaluator)
+   {
+      this(tt, tablebase, evaluator, 0);
+   }
+
+   /** Search with a table shared with other threads; helpers > 0 vary their move order to spread the work */
+   Search(TranspositionTable tt, Tablebase tablebase, Evaluator evaluator, int helper)
+   {
+      this.tt = tt;
+      this.tablebase = tablebase;
+      this.evaluator = (evaluator != null) ? evaluator : DEFAULT_EVALUATOR;
+      this.helper = helper;
+   }
+
+   public Evaluator evaluator()
+   {
+      return evaluator;
+   }
+
+   /** Moves each side may make with no capture or man move before a draw, as in Game.setDrawRules; 0 for none */
+   public void setMoveLimit(int moves)
+   {
+      drawPlies = moves * 2;
+   }
+
+   public TranspositionTable table()
+   {
+      return tt;
+   }
+
+   /** Outcome of one search */
+   public static final class Result
+   {
+      public final int move;     // best move for the side to move, or Move.NONE if there is none
+      public final int score;    // from the side to move's point of view
+      public final int depth;    // last fully searched depth
+      public final long nodes;
+      public final long millis;
+      public final double firstMoveCutoffs; // percentage of beta cutoffs made by the first move tried
+      public final double branchingFactor;  // average number of moves searched at a node
+
+      Result(int move, int score, int depth, long nodes, long millis, double firstMoveCutoffs, double branchingFactor)
+      {
+         this.move = move;
+         this.score = score;
+         this.depth = depth;
+         this.nodes = nodes;
+         this.millis = millis;
+         this.firstMoveCutoffs = firstMoveCutoffs;
+         this.branchingFactor = branchingFactor;
+      }
+
+      public long nodesPerSecond()
+      {
+         return nodes * 1000 / Math.max(1, millis);
+      }
+
+      @Override
+      public String toString()
+      {
+         return "depth " + depth + " score " + score + " nodes " + nodes + " nps " + nodesPerSecond()
+               + String.format(" cut1 %.1f%% bf %.2f", firstMoveCutoffs, branchingFactor)
+               + " best " + (move == Move.NONE ? "none" : Move.toString(move));
+      }
+   }
+
+   /**
+    * Search p and return the best move found.
+    * maxDepth bounds the iterations and millis the time; a value <= 0 disables that limit.
+    * Moves are made and taken back on p itself, which is left as it was.
+    */
+   public Result search(Position p, int maxDepth, long millis)
+   {
+      stopped = false;
+      tt.newSearch();
+      long started = System.nanoTime();
+      long allocated = Metrics.enabled() ? Metrics.allocatedBytes() : 0;
+      Result r = run(p, maxDepth, millis);
+      record(r, started, allocated, probes, hits);
+      return r;
+   }
+
+   /** Add a finished search to the metrics, given the clock and allocation when it started and its table use */
+   static void record(Result r, long started, long allocated, long probes, long hits)
+   {
+      if (!Metrics.enabled())
+         return;
+      SEARCHES.increment();
+      NODES.add(r.nodes);
+      NANOS.add(System.nanoTime() - started);
+      PROBES.add(probes);
+      HITS.add(hits);
+      ALLOCATED.add(Metrics.allocatedBytes() - allocated);
+   }
+
+   /** Table probes made by the last search */
+   public long probes()
+   {
+      return probes;
+   }
+
+   /** Probes of the last search that found their position */
+   public long hits()
+   {
+      return hits;
+   }
+
+   /** Results the last search stored in the table */
+   public long stores()
+   {
+      return stores;
+   }
+
+   /** Stores of the last search that pushed a different position out of its bucket */
+   public long collisions()
+   {
+      return collisions;
+   }
+
+   /**
+    * Forget the killer moves and history learned by earlier searches. Each
+    * search builds on what the ones before it learned, so only a search after
+    * newGame() on a cleared table is reproducible.
+    */
+   public void newGame()
+   {
+      java.util.Arrays.fill(killers, Move.NONE);
+      java.util.Arrays.fill(history, 0);
+   }
+
+   /** Ask a running search to return as soon as possible */
+   public void stop()
+   {
+      stopped = true;
+   }
+
+   /** Clear an earlier stop() before run() is called */
+   void reset()
+   {
+      stopped = false;
+   }
+
+   /** The search itself, without clearing stop() or starting a table generation */
+   Result run(Position p, int maxDepth, long millis)
+   {
+      long start = System.currentTimeMillis();
+      deadline = (millis > 0) ? start + millis : Long.MAX_VALUE;
+      maxDepth = (maxDepth > 0) ? Math.min(maxDepth, MAX_PLY / 2) : MAX_PLY / 2;
+      nodes = 0;
+      interiorNodes = 0;
+      movesSearched = 0;
+      cutoffs = 0;
+      firstMoveCutoffs = 0;
+      probes = 0;
+      hits = 0;
+      stores = 0;
+      collisions = 0;
+      java.util.Arrays.fill(killers, Move.NONE);
+      for (int i = 0; i < history.length; ++i)
+         history[i] >>= 2; // what earlier searches learned still counts, but less
+      evaluator.prepare(p);
+
+      int[] rootMoves = moves[0];
+      int n = MoveGenerator.generate(p, rootMoves);
+      if (n == 0)
+         return new Result(Move.NONE, -WIN, 0, 0, 0, 0, 0);
+
+      // Start from the move an earlier search found best here
+      int hint = TranspositionTable.move(probe(p.hash()));
+      for (int i = 1; i < n; ++i)
+      {
+         if (rootMoves[i] == hint)
+         {
+            rootMoves[i] = rootMoves[0];
+            rootMoves[0] = hint;
+            break;
+         }
+      }
+      // Helper threads start on a different move and depth so they do not just repeat the main thread
+      if (helper > 0)
+      {
+         int shift = helper % n;
+         for (int i = 0; i < shift; ++i)
+         {
+            int first = rootMoves[0];
+            System.arraycopy(rootMoves, 1, rootMoves, 0, n - 1);
+            rootMoves[n - 1] = first;
+         }
+      }
+
+      int bestMove = rootMoves[0];
+      int bestScore = 0;
+      int depthDone = 0;
+      for (int depth = 1 + (helper & 1); depth <= maxDepth; ++depth)
+      {
+         int alpha = -WIN - 1;
+         int iterationMove = Move.NONE;
+         for (int i = 0; i < n; ++i)
+         {
+            int score = child(p, rootMoves[i], depth, alpha, WIN + 1, 1);
+            if (stopped)
+               break;
+            if (score > alpha)
+            {
+               alpha = score;
+               iterationMove = rootMoves[i];
+            }
+         }
+         if (stopped)
+            break;
+         bestMove = iterationMove;
+         bestScore = alpha;
+         depthDone = depth;
+         store(p.hash(), bestMove, toTable(bestScore, 0), depth, TranspositionTable.EXACT);
+         // Try the best move first on the next iteration
+         for (int i = 0; i < n; ++i)
+         {
+            if (rootMoves[i] == bestMove)
+            {
+               rootMoves[i] = rootMoves[0];
+               rootMoves[0] = bestMove;
+               break;
+            }
+         }
+         if (n == 1 || Math.abs(bestScore) >= WIN - MAX_PLY)
+            break; // forced move or a found win/loss, deeper search changes nothing
+      }
+      return new Result(bestMove, bestScore, depthDone, nodes, System.currentTimeMillis() - start,
+            100.0 * firstMoveCutoffs / Math.max(1, cutoffs), (double) movesSearched / Math.max(1, interiorNodes));
+   }
+
+   // Play "move" from p and return its score for the side to move in p
+   private int child(Position p, int move, int depth, int alpha, int beta, int ply)
+   {
+      int side = p.sideToMove();
+      p.makeMove(move);
+      int score;
+      // The rest of a multi-jump is the same player's move at the same depth
+      if (p.sideToMove() == side)
+         score = negamax(p, depth, alpha, beta, ply);
+      else
+         score = -negamax(p, depth - 1, -beta, -alpha, ply);
+      p.unmakeMove();
+      return score;
+   }
+
+   private int negamax(Position p, int depth, int alpha, int beta, int ply)
+   {
+      if ((++nodes & 1023) == 0 && System.currentTimeMillis() >= deadline)
+         stopped = true;
+      if (stopped)
+         return 0;
+
+      // Going back to an earlier position only repeats the line, and the game would be drawn
+      if (p.isRepeated() || drawPlies > 0 && p.quietPlies() >= drawPlies)
+         return 0;
+
+      // Few enough pieces left to know the result outright
+      if (tablebase != null)
+      {
+         int result = tablebase.probe(p);
+         if (result == Tablebase.WIN)
+            return TABLEBASE_WIN - ply + evaluator.evaluate(p);
+         if (result == Tablebase.LOSS)
+            return -TABLEBASE_WIN + ply + evaluator.evaluate(p);
+         if (result == Tablebase.DRAW)
+            return 0;
+      }
+
+      boolean capture = MoveGenerator.hasJump(p);
+      if (depth <= 0 && !capture || ply >= MAX_PLY - 1)
+         return evaluator.evaluate(p);
+
+      // A stored result that is deep enough can answer this node outright
+      long entry = probe(p.hash());
+      int hint = Move.NONE;
+      if (entry != 0)
+      {
+         hint = TranspositionTable.move(entry);
+         if (TranspositionTable.depth(entry) >= depth)
+         {
+            int score = fromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT
+                  || bound == TranspositionTable.LOWER && score >= beta
+                  || bound == TranspositionTable.UPPER && score <= alpha)
+               return score;
+         }
+      }
+
+      int[] list = moves[ply];
+      int n = MoveGenerator.generate(p, list);
+      if (n == 0)
+         return -WIN + ply; // no moves left loses
+      int[] scores = order[ply];
+      score(p, list, scores, n, hint, ply);
+
+      int alphaBefore = alpha;
+      int bestMove = Move.NONE;
+      int searched = 0;
+      while (searched < n)
+      {
+         // Moves are picked best first as they are needed, so a cutoff saves sorting the rest
+         pickNext(list, scores, searched, n);
+         int move = list[searched++];
+         // Past the horizon only forced captures are searched, and they do not use up depth
+         int score = child(p, move, capture ? Math.max(depth, 1) : depth, alpha, beta, ply + 1);
+         if (stopped)
+            return 0;
+         if (score > alpha)
+         {
+            alpha = score;
+            bestMove = move;
+            if (alpha >= beta)
+            {
+               ++cutoffs;
+               if (searched == 1)
+                  ++firstMoveCutoffs;
+               if (!Move.isCapture(move))
+                  rememberCutoff(p.sideToMove(), move, depth, ply);
+               break;
+            }
+         }
+      }
+      ++interiorNodes;
+      movesSearched += searched;
+      int bound = (alpha >= beta) ? TranspositionTable.LOWER
+            : (alpha > alphaBefore) ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+      store(p.hash(), bestMove, toTable(alpha, ply), depth, bound);
+      return alpha;
+   }
+
+   private long probe(long key)
+   {
+      ++probes;
+      long entry = tt.probe(key);
+      if (entry != 0)
+         ++hits;
+      return entry;
+   }
+
+   private void store(long key, int move, int score, int depth, int bound)
+   {
+      ++stores;
+      if (tt.store(key, move, score, depth, bound))
+         ++collisions;
+   }
+
+   // Give each move its ordering score
+   private void score(Position p, int[] list, int[] scores, int n, int hint, int ply)
+   {
+      int side = p.sideToMove() * Bitboard.SQUARES * Bitboard.SQUARES;
+      for (int i = 0; i < n; ++i)
+      {
+         int m = list[i];
+         if (m == hint)
+            scores[i] = HINT_ORDER;
+         else if (Move.isCapture(m))
+            scores[i] = CAPTURE_ORDER + (((p.kings() >>> Move.captured(m)) & 1) << 1) + (Move.isCrowning(m) ? 1 : 0);
+         else
+         {
+            scores[i] = history[side + Move.from(m) * Bitboard.SQUARES + Move.to(m)];
+            if (m == killers[ply * 2])
+               scores[i] += KILLER_BONUS;
+            else if (m == killers[ply * 2 + 1])
+               scores[i] += KILLER_BONUS / 2;
+         }
+      }
+   }
+
+   // Swap the best scored of list[i..n) into place i
+   private static void pickNext(int[] list, int[] scores, int i, int n)
+   {
+      int best = i;
+      for (int j = i + 1; j < n; ++j)
+      {
+         if (scores[j] > scores[best])
+            best = j;
+      }
+      if (best != i)
+      {
+         int move = list[i];
+         list[i] = list[best];
+         list[best] = move;
+         int score = scores[i];
+         scores[i] = scores[best];
+         scores[best] = score;
+      }
+   }
+
+   // A quiet move refuted the opponent's last move: make it a killer and raise its history
+   private void rememberCutoff(int side, int move, int depth, int ply)
+   {
+      if (killers[ply * 2] != move)
+      {
+         killers[ply * 2 + 1] = killers[ply * 2];
+         killers[ply * 2] = move;
+      }
+      int i = side * Bitboard.SQUARES * Bitboard.SQUARES + Move.from(move) * Bitboard.SQUARES + Move.to(move);
+      history[i] += depth * depth;
+      if (history[i] > HISTORY_LIMIT)
+      {
+         for (int j = 0; j < history.length; ++j)
+            history[j] >>= 1;
+      }
+   }
+
+   // Win and loss scores are stored relative to the node, not the root
+   private static int toTable(int score, int ply)
+   {
+      if (score >= WIN - MAX_PLY)
+         return score + ply;
+      if (score <= -WIN + MAX_PLY)
+         return score - ply;
+      return score;
+   }
+
+   private static int fromTable(int score, int ply)
+   {
+      if (score >= WIN - MAX_PLY)
+         return score - ply;
+      if (score <= -WIN + MAX_PLY)
+         return score + ply;
+      return score;
+   }
+}
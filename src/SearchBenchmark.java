@@ -0,0 +1,36 @@
+/**
+ * Benchmark for move ordering: searches the SmpBenchmark positions to a fixed
+ * depth on one thread, each from an empty table, and reports the nodes and
+ * time it took along with the share of beta cutoffs made by the first move
+ * tried and the average number of moves searched per node. Fewer nodes to the
+ * same depth means better ordering.
+ *
+ * Usage: java SearchBenchmark [depth] [hash megabytes]
+ *
+ * @author Zach McGuckin
+ *
+ */
+public class SearchBenchmark
+{
+   public static void main(String[] args)
+   {
+      int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 16;
+      int megabytes = (args.length > 1) ? Integer.parseInt(args[1]) : 64;
+
+      System.out.println("depth " + depth + ", " + megabytes + " MB table");
+      TranspositionTable tt = new TranspositionTable(megabytes);
+      long totalNodes = 0;
+      long totalMillis = 0;
+      for (String fen : SmpBenchmark.POSITIONS)
+      {
+         Position p = fen.equals("start") ? Position.start() : Position.fromFen(fen);
+         tt.clear();
+         Search.Result r = new Search(tt).search(p, depth, 0);
+         totalNodes += r.nodes;
+         totalMillis += r.millis;
+         System.out.printf("%10d nodes %6d ms  first-move cutoffs %5.1f%%  branching %.2f  %s%n", r.nodes, r.millis,
+               r.firstMoveCutoffs, r.branchingFactor, fen);
+      }
+      System.out.printf("total %d nodes in %d ms%n", totalNodes, totalMillis);
+   }
+}
@@ -0,0 +1,70 @@
+/**
+ * Benchmark for ParallelSearch: searches a fixed set of positions to a fixed
+ * depth with 1, 2, 4, 8 and 16 threads and reports time-to-depth, nodes per
+ * second and the speedup over one thread. Every run starts from an empty table
+ * and no move-ordering history.
+ *
+ * Usage: java SmpBenchmark [depth] [hash megabytes] [thread counts, e.g. 1,2,4,8,16]
+ *
+ * @author Zach McGuckin
+ *
+ */
+public class SmpBenchmark
+{
+   static final String[] POSITIONS =
+   {
+      "start",
+      "B:W15,18,19,21,23,24,26,27,29,30,31,32:B1,2,3,5,6,7,8,9,10,12,13,16",
+      "W:W17,20,22,24,25,26,27,28,31:B2,3,4,6,9,10,11,13,14,15",
+      "B:W18,19,21,23,24,26,29,30,31,32:B1,2,3,5,6,7,9,10,11,12",
+      "B:WK10,K14,K27,28,29:BK3,5,8,K19,K22",
+   };
+
+   public static void main(String[] args)
+   {
+      int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 16;
+      int megabytes = (args.length > 1) ? Integer.parseInt(args[1]) : 128;
+      String[] counts = ((args.length > 2) ? args[2] : "1,2,4,8,16").split(",");
+
+      System.out.println("depth " + depth + ", " + megabytes + " MB table, "
+            + Runtime.getRuntime().availableProcessors() + " cores");
+      TranspositionTable tt = new TranspositionTable(megabytes);
+      // Warm the JIT up so the first thread count is not penalised
+      ParallelSearch warmup = new ParallelSearch(1, tt);
+      for (String fen : POSITIONS)
+      {
+         tt.clear();
+         warmup.newGame();
+         warmup.search(fen.equals("start") ? Position.start() : Position.fromFen(fen), depth, 0);
+      }
+
+      double baseline = 0;
+      for (String count : counts)
+      {
+         int threads = Integer.parseInt(count.trim());
+         ParallelSearch search = new ParallelSearch(threads, tt);
+         long totalMillis = 0;
+         long totalNodes = 0;
+         long probes = 0;
+         long hits = 0;
+         StringBuilder perPosition = new StringBuilder();
+         for (String fen : POSITIONS)
+         {
+            Position p = fen.equals("start") ? Position.start() : Position.fromFen(fen);
+            tt.clear();
+            search.newGame();
+            Search.Result r = search.search(p, depth, 0);
+            totalMillis += r.millis;
+            totalNodes += r.nodes;
+            probes += search.probes();
+            hits += search.hits();
+            perPosition.append(String.format(" %7d", r.millis));
+         }
+         if (baseline == 0)
+            baseline = totalMillis;
+         System.out.printf("threads %2d  time-to-depth ms:%s  total %7d ms  %6.2f Mnps  tt hits %4.1f%%  speedup %.2fx%n",
+               threads, perPosition, totalMillis, totalNodes / 1000.0 / Math.max(1, totalMillis),
+               100.0 * hits / Math.max(1, probes), baseline / Math.max(1, totalMillis));
+      }
+   }
+}
@@ -0,0 +1,149 @@
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.swing.*;
+
+/**
+ * Watch many engine-vs-engine games at once in a BoardGrid. Each worker
+ * thread plays a share of the boards, one move on each in turn, starting a
+ * new game from a random opening ballot when one ends. The title bar shows
+ * moves per second and the grid's paint times.
+ *
+ * Usage: java Spectator [-boards n] [-time ms] [-threads n] [-fps n] [-hash MB]
+ *
+ * @author Zach McGuckin
+ *
+ */
+public class Spectator
+{
+   public static void main(String[] args)
+   {
+      int boards = 64;
+      long millis = 20;
+      int threads = Runtime.getRuntime().availableProcessors();
+      int fps = 30;
+      int hash = 16;
+      for (int i = 0; i + 1 < args.length; i += 2)
+      {
+         String value = args[i + 1];
+         if (args[i].equals("-boards"))
+            boards = Integer.parseInt(value);
+         else if (args[i].equals("-time"))
+            millis = Long.parseLong(value);
+         else if (args[i].equals("-threads"))
+            threads = Integer.parseInt(value);
+         else if (args[i].equals("-fps"))
+            fps = Integer.parseInt(value);
+         else if (args[i].equals("-hash"))
+            hash = Integer.parseInt(value);
+         else
+            throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+
+      final int boardCount = boards;
+      final int framesPerSecond = fps;
+      final AtomicLong moves = new AtomicLong();
+      final BoardGrid[] grid = new BoardGrid[1];
+      try
+      {
+         SwingUtilities.invokeAndWait(new Runnable()
+         {
+            @Override
+            public void run()
+            {
+               grid[0] = open(boardCount, framesPerSecond, moves);
+            }
+         });
+      }
+      catch (Exception e)
+      {
+         throw new IllegalStateException("Cannot open the window", e);
+      }
+
+      List<Position> openings = Tournament.ballots();
+      threads = Math.min(threads, boards);
+      for (int t = 0; t < threads; ++t)
+      {
+         Thread worker = new Thread(new Player(grid[0], t, threads, openings, millis, hash, moves), "spectator-" + t);
+         worker.setDaemon(true);
+         worker.start();
+      }
+   }
+
+   // Build the frame; runs on the EDT
+   private static BoardGrid open(int boards, int fps, final AtomicLong moves)
+   {
+      final JFrame frame = new JFrame("Checkers - " + boards + " games");
+      final BoardGrid grid = new BoardGrid(boards, fps);
+      frame.getContentPane().add(grid);
+      frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+      frame.pack();
+      frame.setVisible(true);
+      new Timer(1000, new ActionListener()
+      {
+         private long last;
+
+         @Override
+         public void actionPerformed(ActionEvent e)
+         {
+            long now = moves.get();
+            frame.setTitle(String.format("Checkers - %d games, %d moves/s, paint %s", grid.boards(), now - last,
+                  grid.frameTimer()));
+            last = now;
+            grid.frameTimer().reset();
+         }
+      }).start();
+      return grid;
+   }
+
+   /** Plays the boards first, first + step, ... one move at a time */
+   private static final class Player implements Runnable
+   {
+      private final BoardGrid grid;
+      private final int first;
+      private final int step;
+      private final List<Position> openings;
+      private final long millis;
+      private final AtomicLong moves;
+      private final Search search;
+      private final Random random;
+
+      Player(BoardGrid grid, int first, int step, List<Position> openings, long millis, int hash, AtomicLong moves)
+      {
+         this.grid = grid;
+         this.first = first;
+         this.step = step;
+         this.openings = openings;
+         this.millis = millis;
+         this.moves = moves;
+         // One table for all of this thread's games; their positions rarely meet
+         search = new Search(hash);
+         random = new Random(first);
+      }
+
+      @Override
+      public void run()
+      {
+         int count = (grid.boards() - first + step - 1) / step;
+         Game[] games = new Game[count];
+         while (true)
+         {
+            for (int i = 0; i < count; ++i)
+            {
+               int board = first + i * step;
+               Game game = games[i];
+               if (game == null || game.isOver() || game.moveCount() >= 300)
+                  game = games[i] = new Game(openings.get(random.nextInt(openings.size())));
+               else
+               {
+                  game.play(search.search(game.position(), 0, millis).move);
+                  moves.incrementAndGet();
+               }
+               grid.show(board, game.position());
+            }
+         }
+      }
+   }
+}
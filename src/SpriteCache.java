@@ -0,0 +1,178 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.net.URL;
+import java.util.EnumMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Process-wide cache of the board and piece images.
+ * Each PNG is decoded once, converted to an image compatible with the screen
+ * and pre-scaled to the size it is drawn at, so painting never touches ImageIO.
+ * A lookup allocates nothing: scaled images are found by sprite and by the
+ * size packed into an int. An image that cannot be read is reported once
+ * and then drawn as nothing.
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class SpriteCache
+{
+   // The images shipped under /resources
+   public enum Sprite
+   {
+      background("rbg.png"), red("red.png"), black("black.png"), redKing("redKing.png"), blackKing("blackKing.png");
+
+      private final String fileName;
+
+      Sprite(String fileName)
+      {
+         this.fileName = fileName;
+      }
+   }
+
+   private static final ConcurrentHashMap<Sprite, BufferedImage> decoded = new ConcurrentHashMap<Sprite, BufferedImage>();
+   // Stands in for an image that could not be read, so it is not read again
+   private static final BufferedImage FAILED = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+   // Filled for every sprite here and only read afterwards, so it can be shared between threads
+   private static final EnumMap<Sprite, Sizes> scaled = new EnumMap<Sprite, Sizes>(Sprite.class);
+   static
+   {
+      for (Sprite sprite : Sprite.values())
+         scaled.put(sprite, new Sizes());
+   }
+
+   private static final AtomicLong hits = new AtomicLong();   // lookups served from the cache
+   private static final AtomicLong misses = new AtomicLong(); // PNG decodes
+
+   private SpriteCache()
+   {
+   }
+
+   /** Return the sprite scaled to width by height, decoding and scaling it on first use */
+   public static Image get(Sprite sprite, int width, int height)
+   {
+      Sizes sizes = scaled.get(sprite);
+      int size = (width << 16) | height;
+      Image img = sizes.get(size);
+      if (img != null)
+      {
+         hits.incrementAndGet();
+         return img;
+      }
+      BufferedImage src = decode(sprite);
+      if (src == FAILED)
+         return null;
+      return sizes.add(size, scale(src, width, height));
+   }
+
+   /** Number of lookups answered without decoding */
+   public static long hits()
+   {
+      return hits.get();
+   }
+
+   /** Number of PNG decodes performed */
+   public static long misses()
+   {
+      return misses.get();
+   }
+
+   private static BufferedImage decode(Sprite sprite)
+   {
+      BufferedImage img = decoded.get(sprite);
+      if (img != null)
+         return img;
+      synchronized (decoded)
+      {
+         img = decoded.get(sprite);
+         if (img == null)
+         {
+            try
+            {
+               URL url = SpriteCache.class.getResource("/resources/" + sprite.fileName);
+               misses.incrementAndGet();
+               if (url == null)
+                  throw new java.io.FileNotFoundException("/resources/" + sprite.fileName);
+               img = ImageIO.read(url);
+               if (img == null)
+                  throw new java.io.IOException("Unknown image format in " + url);
+            }
+            catch (Exception e)
+            {
+               e.printStackTrace();
+               img = FAILED;
+            }
+            decoded.put(sprite, img);
+         }
+      }
+      return img;
+   }
+
+   /** The scaled copies of one sprite, by packed size; a new size replaces the list with a longer copy */
+   private static final class Sizes
+   {
+      // Sizes and images go together, so they are published at once through one volatile field
+      private static final class Entries
+      {
+         final int[] sizes;
+         final Image[] images;
+
+         Entries(int[] sizes, Image[] images)
+         {
+            this.sizes = sizes;
+            this.images = images;
+         }
+      }
+
+      private volatile Entries entries = new Entries(new int[0], new Image[0]);
+
+      Image get(int size)
+      {
+         Entries l = entries;
+         for (int i = 0; i < l.sizes.length; ++i)
+         {
+            if (l.sizes[i] == size)
+               return l.images[i];
+         }
+         return null;
+      }
+
+      // Add the image for size and return it, or the one another thread added first
+      synchronized Image add(int size, Image img)
+      {
+         Image previous = get(size);
+         if (previous != null)
+            return previous;
+         Entries l = entries;
+         int n = l.sizes.length;
+         int[] sizes = java.util.Arrays.copyOf(l.sizes, n + 1);
+         sizes[n] = size;
+         Image[] images = java.util.Arrays.copyOf(l.images, n + 1);
+         images[n] = img;
+         entries = new Entries(sizes, images);
+         return img;
+      }
+   }
+
+   private static BufferedImage scale(BufferedImage src, int width, int height)
+   {
+      BufferedImage dst;
+      if (GraphicsEnvironment.isHeadless())
+         dst = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+      else
+      {
+         GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+               .getDefaultScreenDevice().getDefaultConfiguration();
+         dst = gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+      }
+      Graphics2D g2d = dst.createGraphics();
+      g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+      g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      g2d.drawImage(src, 0, 0, width, height, null);
+      g2d.dispose();
+      return dst;
+   }
+}
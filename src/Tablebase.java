@@ -0,0 +1,255 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Win/draw/loss endgame tables, probed straight out of memory-mapped files so
+ * lookups copy nothing and every engine process on the machine shares the
+ * pages through the OS cache. TablebaseGenerator writes the files, one per
+ * material signature, e.g. "r1k2-b0k2.wdl" for 1 red man and 2 red kings
+ * against 2 black kings.
+ *
+ * A position's index is a perfect hash of its piece placement: the red men,
+ * black men, red kings and black kings are each ranked as a combination
+ * (combinatorial number system) of the squares they can stand on, and the
+ * ranks are packed together with the side to move. Each entry takes 2 bits.
+ * Men of both colours are ranked independently, so indexes where they share a
+ * square are unused and stored as INVALID.
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class Tablebase
+{
+   // Results for the side to move, as stored in the files
+   public static final int LOSS = 0;
+   public static final int DRAW = 1;
+   public static final int WIN = 2;
+   public static final int INVALID = 3; // an unused index
+   public static final int UNKNOWN = 3; // returned by probe() when no table covers the position
+
+   static final String SUFFIX = ".wdl";
+   static final int MAGIC = 0x57444C31; // "WDL1"
+   static final int HEADER = 16;        // magic, signature, entries, passes (for checkpoints)
+
+   // Squares men can stand on: they are crowned on reaching the far row
+   static final int RED_MEN = ~Bitboard.BOTTOM_ROW;
+   static final int BLACK_MEN = ~Bitboard.TOP_ROW;
+   private static final int MEN_SQUARES = 28;
+
+   private static final int[][] CHOOSE = new int[Bitboard.SQUARES + 1][Bitboard.SQUARES + 1];
+
+   static
+   {
+      for (int n = 0; n <= Bitboard.SQUARES; ++n)
+      {
+         CHOOSE[n][0] = 1;
+         for (int k = 1; k <= n; ++k)
+            CHOOSE[n][k] = CHOOSE[n - 1][k - 1] + CHOOSE[n - 1][k];
+      }
+   }
+
+   private final ByteBuffer[] tables = new ByteBuffer[1 << 16]; // indexed by signature
+   private int count;
+   private int maxPieces;
+
+   /** Map every table in "dir"; a missing directory gives an empty tablebase */
+   public static Tablebase open(File dir) throws IOException
+   {
+      Tablebase tb = new Tablebase();
+      File[] files = dir.listFiles();
+      if (files != null)
+      {
+         for (File f : files)
+         {
+            if (f.getName().endsWith(SUFFIX))
+               tb.load(f);
+         }
+      }
+      return tb;
+   }
+
+   /** Map one table file, replacing any table already loaded for its signature */
+   void load(File file) throws IOException
+   {
+      ByteBuffer table;
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+      {
+         table = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // stays valid after close
+      }
+      if (table.capacity() < HEADER || table.getInt(0) != MAGIC)
+         throw new IOException("Not a tablebase file: " + file);
+      int signature = table.getInt(4);
+      long entries = size(signature);
+      if (table.getInt(8) != entries || table.capacity() < HEADER + (entries + 3) / 4)
+         throw new IOException("Tablebase file is the wrong size: " + file);
+      if (tables[signature] == null)
+         ++count;
+      tables[signature] = table;
+      maxPieces = Math.max(maxPieces, pieces(signature));
+   }
+
+   /** Number of tables loaded */
+   public int tables()
+   {
+      return count;
+   }
+
+   /** Largest number of pieces covered by any table */
+   public int maxPieces()
+   {
+      return maxPieces;
+   }
+
+   /** WIN, DRAW or LOSS for the side to move in p, or UNKNOWN if no table covers it */
+   public int probe(Position p)
+   {
+      if (p.pending >= 0)
+         return UNKNOWN;
+      int own = p.pieceCount(p.sideToMove);
+      int opponent = p.pieceCount(p.sideToMove ^ 1);
+      if (own + opponent > maxPieces || opponent == 0)
+         return UNKNOWN;
+      if (own == 0)
+         return LOSS;
+      ByteBuffer table = tables[signature(p)];
+      if (table == null)
+         return UNKNOWN;
+      return get(table, index(p));
+   }
+
+   static int get(ByteBuffer table, long index)
+   {
+      return (table.get(HEADER + (int) (index >>> 2)) >>> ((index & 3) << 1)) & 3;
+   }
+
+   // ---- Material signatures ----
+
+   static int signature(int redMen, int redKings, int blackMen, int blackKings)
+   {
+      return redMen | redKings << 4 | blackMen << 8 | blackKings << 12;
+   }
+
+   static int signature(Position p)
+   {
+      return signature(p.counts[Position.RED_MAN], p.counts[Position.RED_KING],
+            p.counts[Position.BLACK_MAN], p.counts[Position.BLACK_KING]);
+   }
+
+   static int count(int signature, int type)
+   {
+      return (signature >>> (type << 2)) & 0xF;
+   }
+
+   static int pieces(int signature)
+   {
+      return count(signature, 0) + count(signature, 1) + count(signature, 2) + count(signature, 3);
+   }
+
+   static String name(int signature)
+   {
+      return "r" + count(signature, Position.RED_MAN) + "k" + count(signature, Position.RED_KING)
+            + "-b" + count(signature, Position.BLACK_MAN) + "k" + count(signature, Position.BLACK_KING);
+   }
+
+   /** Number of entries in the table for a signature, both sides to move */
+   static long size(int signature)
+   {
+      int redMen = count(signature, Position.RED_MAN);
+      int redKings = count(signature, Position.RED_KING);
+      int blackMen = count(signature, Position.BLACK_MAN);
+      int blackKings = count(signature, Position.BLACK_KING);
+      int free = Bitboard.SQUARES - redMen - blackMen;
+      return 2L * CHOOSE[MEN_SQUARES][redMen] * CHOOSE[MEN_SQUARES][blackMen]
+            * CHOOSE[free][redKings] * CHOOSE[free - redKings][blackKings];
+   }
+
+   // ---- Perfect hash of piece placements ----
+
+   /** Index of p in its signature's table */
+   static long index(Position p)
+   {
+      int redMen = p.red & ~p.kings;
+      int blackMen = p.black & ~p.kings;
+      int redKings = p.red & p.kings;
+      int blackKings = p.black & p.kings;
+      int free = ~(redMen | blackMen);
+      int squares = Integer.bitCount(free);
+      long i = rank(redMen, RED_MEN);
+      i = i * CHOOSE[MEN_SQUARES][Integer.bitCount(blackMen)] + rank(blackMen, BLACK_MEN);
+      i = i * CHOOSE[squares][Integer.bitCount(redKings)] + rank(redKings, free);
+      i = i * CHOOSE[squares - Integer.bitCount(redKings)][Integer.bitCount(blackKings)]
+            + rank(blackKings, free & ~redKings);
+      return i * 2 + p.sideToMove;
+   }
+
+   /** Set p to the position at "index" in a signature's table; return false for an unused index */
+   static boolean decode(int signature, long index, Position p)
+   {
+      int redMenCount = count(signature, Position.RED_MAN);
+      int redKingCount = count(signature, Position.RED_KING);
+      int blackMenCount = count(signature, Position.BLACK_MAN);
+      int blackKingCount = count(signature, Position.BLACK_KING);
+      int squares = Bitboard.SQUARES - redMenCount - blackMenCount;
+
+      int side = (int) (index & 1);
+      index >>>= 1;
+      int blackKingChoices = CHOOSE[squares - redKingCount][blackKingCount];
+      int blackKingRank = (int) (index % blackKingChoices);
+      index /= blackKingChoices;
+      int redKingChoices = CHOOSE[squares][redKingCount];
+      int redKingRank = (int) (index % redKingChoices);
+      index /= redKingChoices;
+      int blackMenChoices = CHOOSE[MEN_SQUARES][blackMenCount];
+      int blackMenRank = (int) (index % blackMenChoices);
+      int redMenRank = (int) (index / blackMenChoices);
+
+      int redMen = unrank(redMenRank, redMenCount, RED_MEN);
+      int blackMen = unrank(blackMenRank, blackMenCount, BLACK_MEN);
+      if ((redMen & blackMen) != 0)
+         return false;
+      int free = ~(redMen | blackMen);
+      int redKings = unrank(redKingRank, redKingCount, free);
+      int blackKings = unrank(blackKingRank, blackKingCount, free & ~redKings);
+      p.set(redMen | redKings, blackMen | blackKings, redKings | blackKings, side);
+      return true;
+   }
+
+   // Colex rank of the set "pieces" among the squares of "universe"
+   private static int rank(int pieces, int universe)
+   {
+      int r = 0;
+      int k = 0;
+      while (pieces != 0)
+      {
+         int bit = pieces & -pieces;
+         pieces ^= bit;
+         r += CHOOSE[Integer.bitCount(universe & (bit - 1))][++k];
+      }
+      return r;
+   }
+
+   // The set of k squares of "universe" with colex rank r
+   private static int unrank(int r, int k, int universe)
+   {
+      int pieces = 0;
+      for (; k > 0; --k)
+      {
+         int position = k - 1;
+         while (CHOOSE[position + 1][k] <= r)
+            ++position;
+         r -= CHOOSE[position][k];
+         pieces |= nthSquare(universe, position);
+      }
+      return pieces;
+   }
+
+   private static int nthSquare(int universe, int n)
+   {
+      for (; n > 0; --n)
+         universe &= universe - 1;
+      return universe & -universe;
+   }
+}
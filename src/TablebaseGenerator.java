@@ -0,0 +1,329 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds the Tablebase files for every material signature up to a number of
+ * pieces. Signatures are solved in an order where every position a move can
+ * lead to outside the current table (a capture or a crowning) is already on
+ * disk, so only quiet moves stay inside the table being solved.
+ *
+ * Each table is solved backwards from the end: a pass over the unresolved
+ * positions marks a position won if some move leads to a lost position for
+ * the opponent, and lost if every move leads to a won one. Passes repeat until
+ * nothing changes; positions still unresolved are draws. Passes are split over
+ * a pool of threads. Finished tables are written atomically, so a run that is
+ * stopped starts again after the last finished table, and a table that takes
+ * long to solve is also checkpointed between passes and resumed from there.
+ *
+ * Usage: java TablebaseGenerator [-pieces n] [-threads n] [-dir path] [-checkpoint seconds]
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class TablebaseGenerator
+{
+   private static final String PARTIAL = ".part";
+   private static final int CHUNK = 1 << 14; // entries handed to a thread at a time
+
+   private final File dir;
+   private final int threads;
+   private final long checkpointMillis;
+   private final Tablebase tablebase;
+
+   public TablebaseGenerator(File dir, int threads, long checkpointMillis) throws IOException
+   {
+      if (!dir.isDirectory() && !dir.mkdirs())
+         throw new IOException("Cannot create " + dir);
+      this.dir = dir;
+      this.threads = threads;
+      this.checkpointMillis = checkpointMillis;
+      this.tablebase = Tablebase.open(dir);
+   }
+
+   public static void main(String[] args) throws Exception
+   {
+      int pieces = 4;
+      int threads = Runtime.getRuntime().availableProcessors();
+      File dir = new File("tablebase");
+      long checkpoint = 60;
+      for (int i = 0; i + 1 < args.length; i += 2)
+      {
+         String value = args[i + 1];
+         if (args[i].equals("-pieces"))
+            pieces = Integer.parseInt(value);
+         else if (args[i].equals("-threads"))
+            threads = Integer.parseInt(value);
+         else if (args[i].equals("-dir"))
+            dir = new File(value);
+         else if (args[i].equals("-checkpoint"))
+            checkpoint = Long.parseLong(value);
+         else
+            throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+      new TablebaseGenerator(dir, threads, checkpoint * 1000).generate(pieces);
+   }
+
+   /** Every signature with both sides on the board and at most "pieces" pieces, in the order they can be solved */
+   static List<Integer> signatures(int pieces)
+   {
+      List<Integer> list = new ArrayList<Integer>();
+      for (int total = 2; total <= pieces; ++total)
+      {
+         for (int red = 1; red < total; ++red)
+         {
+            int black = total - red;
+            for (int redMen = 0; redMen <= red; ++redMen)
+            {
+               for (int blackMen = 0; blackMen <= black; ++blackMen)
+                  list.add(Tablebase.signature(redMen, red - redMen, blackMen, black - blackMen));
+            }
+         }
+      }
+      // Captures lead to fewer pieces and crownings to fewer men
+      Collections.sort(list, new Comparator<Integer>()
+      {
+         @Override
+         public int compare(Integer a, Integer b)
+         {
+            int byPieces = Integer.compare(Tablebase.pieces(a), Tablebase.pieces(b));
+            if (byPieces != 0)
+               return byPieces;
+            return Integer.compare(men(a), men(b));
+         }
+      });
+      return list;
+   }
+
+   private static int men(int signature)
+   {
+      return Tablebase.count(signature, Position.RED_MAN) + Tablebase.count(signature, Position.BLACK_MAN);
+   }
+
+   /** Solve and write every table up to "pieces" pieces that is not on disk yet */
+   public void generate(int pieces) throws IOException, InterruptedException
+   {
+      ExecutorService pool = Executors.newFixedThreadPool(threads);
+      try
+      {
+         long start = System.currentTimeMillis();
+         for (int signature : signatures(pieces))
+         {
+            File file = new File(dir, Tablebase.name(signature) + Tablebase.SUFFIX);
+            if (file.exists())
+            {
+               tablebase.load(file);
+               continue;
+            }
+            solve(signature, file, pool);
+            tablebase.load(file);
+         }
+         System.out.printf("%d tables up to %d pieces in %s, %.1f s%n", tablebase.tables(), pieces, dir,
+               (System.currentTimeMillis() - start) / 1000.0);
+      }
+      finally
+      {
+         pool.shutdown();
+      }
+   }
+
+   private void solve(int signature, File file, ExecutorService pool) throws IOException, InterruptedException
+   {
+      long size = Tablebase.size(signature);
+      if (size > Integer.MAX_VALUE)
+         throw new IllegalArgumentException("Table " + Tablebase.name(signature) + " is too large");
+      long start = System.currentTimeMillis();
+      final byte[] values = new byte[(int) size];
+      File partial = new File(dir, file.getName() + PARTIAL);
+      int passes = partial.exists() ? readPartial(partial, signature, values) : 0;
+      if (passes == 0)
+         Arrays.fill(values, (byte) Tablebase.DRAW); // DRAW means not resolved (yet) while solving
+      long lastCheckpoint = System.currentTimeMillis();
+
+      long changed;
+      do
+      {
+         changed = pass(signature, values, passes == 0, pool);
+         ++passes;
+         if (changed > 0 && System.currentTimeMillis() - lastCheckpoint >= checkpointMillis)
+         {
+            write(partial, signature, values, passes);
+            lastCheckpoint = System.currentTimeMillis();
+         }
+      }
+      while (changed > 0);
+
+      write(file, signature, values, passes);
+      Files.deleteIfExists(partial.toPath());
+
+      long[] counts = new long[4];
+      for (byte v : values)
+         ++counts[v];
+      long millis = Math.max(1, System.currentTimeMillis() - start);
+      System.out.printf("%-10s %11d entries  %3d passes  win %10d  draw %10d  loss %10d  %7.1f s  %6.2f M/s%n",
+            Tablebase.name(signature), size, passes, counts[Tablebase.WIN], counts[Tablebase.DRAW],
+            counts[Tablebase.LOSS], millis / 1000.0, (double) size * passes / millis / 1000);
+   }
+
+   // One pass over the table on every thread; returns the number of entries resolved
+   private long pass(final int signature, final byte[] values, final boolean first, ExecutorService pool)
+         throws InterruptedException
+   {
+      final AtomicLong nextChunk = new AtomicLong();
+      final AtomicLong changed = new AtomicLong();
+      List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+      for (int t = 0; t < threads; ++t)
+      {
+         workers.add(new Callable<Void>()
+         {
+            @Override
+            public Void call()
+            {
+               Solver solver = new Solver(signature, values);
+               long resolved = 0;
+               long begin;
+               while ((begin = nextChunk.getAndAdd(CHUNK)) < values.length)
+                  resolved += solver.solve((int) begin, (int) Math.min(values.length, begin + CHUNK), first);
+               changed.addAndGet(resolved);
+               return null;
+            }
+         });
+      }
+      for (Future<Void> f : pool.invokeAll(workers))
+      {
+         try
+         {
+            f.get();
+         }
+         catch (ExecutionException e)
+         {
+            throw new IllegalStateException("Tablebase worker failed", e.getCause());
+         }
+      }
+      return changed.get();
+   }
+
+   /** Per-thread state for solving entries of one table */
+   private final class Solver
+   {
+      private final int signature;
+      private final byte[] values;
+      private final Position position = new Position();
+      private final int[][] moves = new int[Search.MAX_PLY][MoveGenerator.MAX_MOVES];
+
+      Solver(int signature, byte[] values)
+      {
+         this.signature = signature;
+         this.values = values;
+      }
+
+      // Resolve what can be resolved in [begin, end); returns how many entries changed
+      long solve(int begin, int end, boolean first)
+      {
+         long changed = 0;
+         for (int i = begin; i < end; ++i)
+         {
+            if (values[i] != Tablebase.DRAW)
+               continue;
+            if (!Tablebase.decode(signature, i, position))
+            {
+               if (first)
+                  values[i] = Tablebase.INVALID;
+               continue;
+            }
+            int value = best(position, 0);
+            if (value != Tablebase.DRAW)
+            {
+               values[i] = (byte) value;
+               ++changed;
+            }
+         }
+         return changed;
+      }
+
+      // Best known result for the side to move over all of its moves, a multi-jump being one move
+      private int best(Position p, int ply)
+      {
+         int[] list = moves[ply];
+         int n = MoveGenerator.generate(p, list);
+         int side = p.sideToMove();
+         int best = Tablebase.LOSS; // also when there is no move at all
+         for (int i = 0; i < n && best != Tablebase.WIN; ++i)
+         {
+            p.makeMove(list[i]);
+            int value = (p.sideToMove() == side) ? best(p, ply + 1) : Tablebase.WIN - lookup(p);
+            p.unmakeMove();
+            best = Math.max(best, value);
+         }
+         return best;
+      }
+
+      // Result for the side to move after a completed move
+      private int lookup(Position p)
+      {
+         if (p.pieceCount(p.sideToMove()) == 0)
+            return Tablebase.LOSS;
+         if (Tablebase.signature(p) == signature)
+            return values[(int) Tablebase.index(p)];
+         int value = tablebase.probe(p);
+         if (value == Tablebase.UNKNOWN)
+            throw new IllegalStateException("No table for " + p.toFen());
+         return value;
+      }
+   }
+
+   // ---- Files ----
+
+   private static void write(File file, int signature, byte[] values, int passes) throws IOException
+   {
+      File temp = new File(file.getPath() + ".tmp");
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16)))
+      {
+         out.writeInt(Tablebase.MAGIC);
+         out.writeInt(signature);
+         out.writeInt(values.length);
+         out.writeInt(passes);
+         for (int i = 0; i < values.length; i += 4)
+         {
+            int packed = 0;
+            for (int j = 0; j < 4 && i + j < values.length; ++j)
+               packed |= values[i + j] << (j << 1);
+            out.writeByte(packed);
+         }
+      }
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+   }
+
+   // Load a checkpoint into "values" and return the passes it had done, or 0 if it is unusable
+   private static int readPartial(File file, int signature, byte[] values) throws IOException
+   {
+      try (RandomAccessFile in = new RandomAccessFile(file, "r"))
+      {
+         if (in.readInt() != Tablebase.MAGIC || in.readInt() != signature || in.readInt() != values.length)
+            return 0;
+         int passes = in.readInt();
+         byte[] packed = new byte[(values.length + 3) / 4];
+         in.readFully(packed);
+         for (int i = 0; i < values.length; ++i)
+            values[i] = (byte) ((packed[i >>> 2] >>> ((i & 3) << 1)) & 3);
+         System.out.println("Resuming " + file + " after " + passes + " passes");
+         return passes;
+      }
+   }
+}
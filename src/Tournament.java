@@ -0,0 +1,348 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Headless engine-vs-engine tournament. Plays engine A against engine B from
+ * the start position or from two-move opening ballots, each opening twice with
+ * colours reversed, on a fixed pool of threads (one game per thread, default one
+ * per core). Each result is printed as soon as its game finishes, followed by
+ * Elo and SPRT statistics for A at the end. With -pdn every game is also
+ * written to a PDN file as it finishes, e.g. as self-play for NetworkTrainer.
+ *
+ * Usage: java Tournament [-games n] [-concurrency n] [-openings ballots|start]
+ *        [-maxplies n] [-a engine] [-b engine] [-sprt elo0,elo1] [-stats file] [-tablebase dir] [-book file]
+ *        [-pdn file]
+ * where an engine is written as time=ms,depth=plies,hash=MB,eval=file (e.g. time=100,hash=16), eval
+ * being a PieceSquareEvaluator weights file, a NetworkEvaluator file (*.nn) or "material".
+ *
+ * @author Zach McGuckin
+ *
+ */
+public class Tournament
+{
+   /** Settings for one side of the match */
+   static final class Engine
+   {
+      int depth;
+      long millis = 100;
+      int hashMegabytes = 16;
+      String eval;             // weights file, "material" or null for the default
+      Evaluator evaluator;
+
+      static Engine parse(String spec)
+      {
+         Engine e = new Engine();
+         for (String setting : spec.split(","))
+         {
+            String[] kv = setting.split("=");
+            if (kv.length != 2)
+               throw new IllegalArgumentException("Bad engine setting: " + setting);
+            if (kv[0].equals("depth"))
+               e.depth = Integer.parseInt(kv[1]);
+            else if (kv[0].equals("time"))
+               e.millis = Long.parseLong(kv[1]);
+            else if (kv[0].equals("hash"))
+               e.hashMegabytes = Integer.parseInt(kv[1]);
+            else if (kv[0].equals("eval"))
+            {
+               e.eval = kv[1];
+               try
+               {
+                  e.evaluator = Evaluator.load(kv[1]);
+               }
+               catch (IOException ex)
+               {
+                  throw new IllegalArgumentException("Cannot read evaluation weights: " + ex.getMessage(), ex);
+               }
+            }
+            else
+               throw new IllegalArgumentException("Unknown engine setting: " + kv[0]);
+         }
+         return e;
+      }
+
+      @Override
+      public String toString()
+      {
+         return "time=" + millis + ",depth=" + depth + ",hash=" + hashMegabytes + (eval == null ? "" : ",eval=" + eval);
+      }
+   }
+
+   /** Outcome of one game, scored for engine A */
+   static final class Outcome
+   {
+      final int number;
+      final int opening;
+      final boolean aIsRed;
+      final GameState state; // playing means the game hit the ply limit and is scored as a draw too
+      final int plies;
+      final long millis;
+      final PdnGame record;
+
+      Outcome(int number, int opening, boolean aIsRed, GameState state, int plies, long millis, PdnGame record)
+      {
+         this.number = number;
+         this.opening = opening;
+         this.aIsRed = aIsRed;
+         this.state = state;
+         this.plies = plies;
+         this.millis = millis;
+         this.record = record;
+      }
+
+      double scoreForA()
+      {
+         if (state == GameState.playing || state == GameState.draw)
+            return 0.5;
+         boolean redWon = state == GameState.redWon;
+         return (redWon == aIsRed) ? 1 : 0;
+      }
+   }
+
+   public static void main(String[] args) throws Exception
+   {
+      int games = 100;
+      int concurrency = Runtime.getRuntime().availableProcessors();
+      boolean ballots = true;
+      int maxPlies = 300;
+      Engine a = new Engine();
+      Engine b = new Engine();
+      double elo0 = 0;
+      double elo1 = 10;
+      String statsFile = null;
+      Tablebase tablebase = null;
+      OpeningBook book = null;
+      String pdnFile = null;
+      for (int i = 0; i + 1 < args.length; i += 2)
+      {
+         String value = args[i + 1];
+         if (args[i].equals("-games"))
+            games = Integer.parseInt(value);
+         else if (args[i].equals("-concurrency"))
+            concurrency = Integer.parseInt(value);
+         else if (args[i].equals("-openings"))
+            ballots = value.equals("ballots");
+         else if (args[i].equals("-maxplies"))
+            maxPlies = Integer.parseInt(value);
+         else if (args[i].equals("-a"))
+            a = Engine.parse(value);
+         else if (args[i].equals("-b"))
+            b = Engine.parse(value);
+         else if (args[i].equals("-sprt"))
+         {
+            String[] bounds = value.split(",");
+            elo0 = Double.parseDouble(bounds[0]);
+            elo1 = Double.parseDouble(bounds[1]);
+         }
+         else if (args[i].equals("-stats"))
+            statsFile = value;
+         else if (args[i].equals("-tablebase"))
+            tablebase = Tablebase.open(new java.io.File(value)); // shared by both engines and every game
+         else if (args[i].equals("-book"))
+            book = OpeningBook.open(new java.io.File(value));
+         else if (args[i].equals("-pdn"))
+            pdnFile = value;
+         else
+            throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+
+      List<Position> openings = ballots ? ballots() : java.util.Collections.singletonList(Position.start());
+      System.out.println("A: " + a + "  B: " + b + "  games " + games + "  concurrency " + concurrency
+            + "  openings " + openings.size());
+
+      ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+      CompletionService<Outcome> done = new ExecutorCompletionService<Outcome>(pool);
+      for (int g = 0; g < games; ++g)
+      {
+         // Each opening is played twice in a row, A taking red the first time
+         int opening = (g / 2) % openings.size();
+         done.submit(new Match(g + 1, opening, openings.get(opening), (g & 1) == 0, a, b, maxPlies, tablebase, book));
+      }
+
+      int wins = 0;
+      int draws = 0;
+      int losses = 0;
+      long start = System.currentTimeMillis();
+      PdnWriter pdn = (pdnFile == null) ? null : new PdnWriter(new FileWriter(pdnFile));
+      try
+      {
+         for (int g = 0; g < games; ++g)
+         {
+            Outcome o = done.take().get();
+            double score = o.scoreForA();
+            if (score == 1)
+               ++wins;
+            else if (score == 0)
+               ++losses;
+            else
+               ++draws;
+            System.out.printf("game %4d  opening %3d  red %s  %-8s  %3d plies  %6d ms   A +%d =%d -%d%n",
+                  o.number, o.opening, o.aIsRed ? "A" : "B",
+                  o.state == GameState.playing ? "limit" : o.state.toString(), o.plies, o.millis, wins, draws, losses);
+            if (pdn != null)
+               pdn.write(o.record);
+         }
+      }
+      catch (ExecutionException e)
+      {
+         pool.shutdownNow();
+         throw e;
+      }
+      finally
+      {
+         if (pdn != null)
+            pdn.close();
+      }
+      pool.shutdown();
+
+      String stats = statistics(wins, draws, losses, elo0, elo1, System.currentTimeMillis() - start);
+      System.out.print(stats);
+      if (statsFile != null)
+      {
+         try (PrintWriter out = new PrintWriter(new FileWriter(statsFile)))
+         {
+            out.print(stats);
+         }
+         catch (IOException e)
+         {
+            e.printStackTrace();
+         }
+      }
+   }
+
+   /** Distinct positions after each side's first move, red to move */
+   static List<Position> ballots()
+   {
+      List<Position> openings = new ArrayList<Position>();
+      java.util.Set<Long> seen = new java.util.HashSet<Long>();
+      Position p = Position.start();
+      int[] first = new int[MoveGenerator.MAX_MOVES];
+      int[] second = new int[MoveGenerator.MAX_MOVES];
+      int n = MoveGenerator.generate(p, first);
+      for (int i = 0; i < n; ++i)
+      {
+         p.makeMove(first[i]);
+         int m = MoveGenerator.generate(p, second);
+         for (int j = 0; j < m; ++j)
+         {
+            p.makeMove(second[j]);
+            if (p.sideToMove() == Position.RED && seen.add(p.hash()))
+               openings.add(new Position(p));
+            p.unmakeMove();
+         }
+         p.unmakeMove();
+      }
+      return openings;
+   }
+
+   /** Score, Elo difference with a 95% interval, and a GSPRT log-likelihood ratio for A */
+   static String statistics(int wins, int draws, int losses, double elo0, double elo1, long millis)
+   {
+      int n = wins + draws + losses;
+      StringBuilder sb = new StringBuilder();
+      sb.append(String.format("games %d  A +%d =%d -%d  in %.1f s%n", n, wins, draws, losses, millis / 1000.0));
+      if (n == 0)
+         return sb.toString();
+      double score = (wins + 0.5 * draws) / n;
+      double variance = (wins * Math.pow(1 - score, 2) + draws * Math.pow(0.5 - score, 2)
+            + losses * Math.pow(score, 2)) / n;
+      double margin = 1.96 * Math.sqrt(variance / n);
+      sb.append(String.format("score %.3f  Elo %+.1f  (95%% %+.1f .. %+.1f)%n", score, elo(score),
+            elo(score - margin), elo(score + margin)));
+
+      // Generalised SPRT with alpha = beta = 0.05 on the per-game score
+      double lower = Math.log(0.05 / 0.95);
+      double upper = Math.log(0.95 / 0.05);
+      double s0 = 1 / (1 + Math.pow(10, -elo0 / 400));
+      double s1 = 1 / (1 + Math.pow(10, -elo1 / 400));
+      double llr = (variance == 0) ? 0 : n * (s1 - s0) * (2 * score - s0 - s1) / (2 * variance);
+      String verdict = (llr >= upper) ? "H1 accepted" : (llr <= lower) ? "H0 accepted" : "inconclusive";
+      sb.append(String.format("SPRT elo0 %.1f elo1 %.1f  LLR %.2f  bounds [%.2f, %.2f]  %s%n",
+            elo0, elo1, llr, lower, upper, verdict));
+      return sb.toString();
+   }
+
+   private static double elo(double score)
+   {
+      score = Math.min(Math.max(score, 1e-6), 1 - 1e-6);
+      return -400 * Math.log10(1 / score - 1);
+   }
+
+   /** One game, played on a pool thread */
+   static final class Match implements Callable<Outcome>
+   {
+      // Tables are reused by the games that run on the same pool thread
+      private static final ThreadLocal<TranspositionTable[]> TABLES = new ThreadLocal<TranspositionTable[]>();
+
+      private final int number;
+      private final int opening;
+      private final Position start;
+      private final boolean aIsRed;
+      private final Engine a;
+      private final Engine b;
+      private final int maxPlies;
+      private final Tablebase tablebase;
+      private final OpeningBook book;
+
+      Match(int number, int opening, Position start, boolean aIsRed, Engine a, Engine b, int maxPlies,
+            Tablebase tablebase, OpeningBook book)
+      {
+         this.number = number;
+         this.opening = opening;
+         this.start = start;
+         this.aIsRed = aIsRed;
+         this.a = a;
+         this.b = b;
+         this.maxPlies = maxPlies;
+         this.tablebase = tablebase;
+         this.book = book;
+      }
+
+      @Override
+      public Outcome call()
+      {
+         long begin = System.currentTimeMillis();
+         TranspositionTable[] tables = TABLES.get();
+         if (tables == null)
+         {
+            tables = new TranspositionTable[] { new TranspositionTable(a.hashMegabytes), new TranspositionTable(b.hashMegabytes) };
+            TABLES.set(tables);
+         }
+         tables[0].clear();
+         tables[1].clear();
+         Search searchA = new Search(tables[0], tablebase, a.evaluator);
+         Search searchB = new Search(tables[1], tablebase, b.evaluator);
+
+         Game game = new Game(start);
+         // Both games of an opening pair follow the same book line
+         java.util.Random random = new java.util.Random((number + 1) / 2);
+         while (!game.isOver() && game.moveCount() < maxPlies)
+         {
+            int move = (book == null) ? Move.NONE : book.probe(game.position(), random);
+            if (move == Move.NONE)
+            {
+               boolean aToMove = (game.sideToMove() == Position.RED) == aIsRed;
+               Engine engine = aToMove ? a : b;
+               move = (aToMove ? searchA : searchB).search(game.position(), engine.depth, engine.millis).move;
+            }
+            game.play(move);
+         }
+         java.util.Map<String, String> tags = new java.util.LinkedHashMap<String, String>();
+         tags.put("Event", "Tournament");
+         tags.put("Round", Integer.toString(number));
+         tags.put("Black", aIsRed ? "A " + a : "B " + b); // PDN's first mover, our red
+         tags.put("White", aIsRed ? "B " + b : "A " + a);
+         return new Outcome(number, opening, aIsRed, game.state(), game.moveCount(), System.currentTimeMillis() - begin,
+               PdnGame.of(game, tags));
+      }
+   }
+}
@@ -0,0 +1,154 @@
+/**
+ * Fixed-size transposition table keyed by Zobrist hash.
+ * Entries live in two primitive long[] arrays (key and packed data), grouped
+ * in buckets of two: the first slot keeps the deepest result, the second is
+ * always replaced. The number of entries is the largest power of two that
+ * fits the configured size in megabytes.
+ *
+ * The table can be shared by several search threads without locks: the key
+ * slot holds key ^ data, so an entry torn by two threads writing at once
+ * fails the key check and reads as a miss. The table keeps no counters of
+ * its own, which every thread would fight over; each Search counts its
+ * probes, hits, stores and collisions and ParallelSearch adds them up.
+ *
+ * data layout:
+ * bits 0-16  best move (Move.NONE if unknown)
+ * bits 17-18 bound (EXACT, LOWER or UPPER)
+ * bits 19-26 depth
+ * bit  27    entry in use
+ * bits 28-31 search generation
+ * bits 32-63 score
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class TranspositionTable
+{
+   public static final int EXACT = 0;
+   public static final int LOWER = 1; // score is at least this (fail high)
+   public static final int UPPER = 2; // score is at most this (fail low)
+
+   private static final int ENTRY_BYTES = 16;
+   private static final long USED = 1L << 27;
+
+   private final long[] keys;
+   private final long[] data;
+   private final int bucketMask;
+   private long generation;
+
+   public TranspositionTable(int megabytes)
+   {
+      if (megabytes < 1)
+         throw new IllegalArgumentException("Transposition table needs at least 1 MB");
+      long entries = Long.highestOneBit((long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+      entries = Math.min(entries, 1 << 30);
+      keys = new long[(int) entries];
+      data = new long[(int) entries];
+      bucketMask = (int) (entries / 2) - 1;
+   }
+
+   /** Return the entry data stored for key, or 0 if there is none */
+   public long probe(long key)
+   {
+      int i = bucket(key);
+      long d = data[i];
+      if (d != 0 && (keys[i] ^ d) == key)
+         return d;
+      d = data[i + 1];
+      if (d != 0 && (keys[i + 1] ^ d) == key)
+         return d;
+      return 0;
+   }
+
+   /** Store a search result for key; returns true if that pushed a different position out of its bucket */
+   public boolean store(long key, int move, int score, int depth, int bound)
+   {
+      boolean collision = false;
+      int i = bucket(key);
+      long first = data[i];
+      long firstKey = keys[i] ^ first;
+      long second = data[i + 1];
+      long secondKey = keys[i + 1] ^ second;
+      if (first != 0 && firstKey == key)
+      {
+         // Keep the old best move as a hint if this search did not find one
+         if (move == Move.NONE)
+            move = move(first);
+      }
+      else if (depth >= depth(first) || generation(first) != generation)
+      {
+         // Depth-preferred slot: the shallower or older entry drops to the always-replace slot
+         collision = second != 0 && secondKey != key;
+         keys[i + 1] = keys[i];
+         data[i + 1] = first;
+      }
+      else
+      {
+         collision = second != 0 && secondKey != key;
+         i += 1;
+      }
+      long packed = pack(move, score, depth, bound);
+      keys[i] = key ^ packed;
+      data[i] = packed;
+      return collision;
+   }
+
+   /** Start a new search: entries from earlier searches become the first to be replaced */
+   public void newSearch()
+   {
+      generation = (generation + 1) & 15;
+   }
+
+   public void clear()
+   {
+      java.util.Arrays.fill(keys, 0);
+      java.util.Arrays.fill(data, 0);
+   }
+
+   public int entries()
+   {
+      return keys.length;
+   }
+
+   public static int move(long data)
+   {
+      return (int) (data & 0x1FFFF);
+   }
+
+   public static int bound(long data)
+   {
+      return (int) (data >>> 17) & 3;
+   }
+
+   public static int depth(long data)
+   {
+      return (int) (data >>> 19) & 0xFF;
+   }
+
+   public static int score(long data)
+   {
+      return (int) (data >> 32);
+   }
+
+   private static long generation(long data)
+   {
+      return (data >>> 28) & 15;
+   }
+
+   private long pack(int move, int score, int depth, int bound)
+   {
+      return (move & 0x1FFFFL) | ((long) bound << 17) | ((long) Math.max(0, Math.min(depth, 255)) << 19)
+            | USED | (generation << 28) | ((long) score << 32);
+   }
+
+   private int bucket(long key)
+   {
+      return ((int) key & bucketMask) << 1;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "tt " + entries() + " entries";
+   }
+}
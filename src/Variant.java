@@ -0,0 +1,138 @@
+/**
+ * The rules and board geometry that differ between draughts variants, for
+ * VariantPosition and VariantMoveGenerator. Squares are numbered as in
+ * Bitboard, generalised to any even board size: square s sits on row
+ * s / (size / 2), the first mover (our red) starts on the top rows and moves
+ * down, and a square is dark when row + col is even. Bitboards are longs, and
+ * a VariantMove keeps the captured squares as a bitboard next to two square
+ * numbers, so a board can have up to 50 squares: the 10x10 board has 50.
+ *
+ * For every square and each of the four diagonal directions the variant
+ * holds the ray of squares out to the edge of the board, nearest first, so a
+ * flying king's moves and captures are a walk along four precomputed lists.
+ *
+ * @author Zach McGuckin
+ *
+ */
+public enum Variant
+{
+   /** 8x8 English draughts: men move and capture forwards only, kings move one step */
+   ENGLISH(8, 3, false, false, true, false, 'B', false, true),
+   /**
+    * 10x10 international draughts: men capture backwards too, kings fly, and
+    * the capture taking the most pieces must be played
+    */
+   INTERNATIONAL(10, 4, true, true, false, true, 'W', true, false);
+
+   // Directions, as in MoveGenerator; d ^ 3 is the opposite of d
+   public static final int DOWN_LEFT = 0;
+   public static final int DOWN_RIGHT = 1;
+   public static final int UP_LEFT = 2;
+   public static final int UP_RIGHT = 3;
+
+   public final int size;                    // rows and columns
+   public final int squares;                 // dark squares, size * size / 2
+   public final int rowsOfMen;               // rows each side starts on
+   public final boolean flyingKings;         // kings move and capture any distance along a diagonal
+   public final boolean menCaptureBackward;
+   public final boolean crowningEndsCapture; // a man reaching the far row mid-capture is crowned and stops
+   public final boolean maximumCapture;      // a capture must take as many pieces as possible
+   public final char firstMover;             // the PDN FEN letter of the side that moves first, our red
+
+   public final long all;        // every square
+   public final long topRow;     // row 0, where black men are crowned
+   public final long bottomRow;  // the last row, where red men are crowned
+
+   private final boolean flipRows; // standard numbers count rows from the bottom
+   private final boolean flipCols; // standard numbers count columns from the right
+   private final int[][][] rays;   // [direction][square] the squares out to the edge, nearest first
+
+   Variant(int size, int rowsOfMen, boolean flyingKings, boolean menCaptureBackward, boolean crowningEndsCapture,
+         boolean maximumCapture, char firstMover, boolean flipRows, boolean flipCols)
+   {
+      this.size = size;
+      this.squares = size * size / 2;
+      this.rowsOfMen = rowsOfMen;
+      this.flyingKings = flyingKings;
+      this.menCaptureBackward = menCaptureBackward;
+      this.crowningEndsCapture = crowningEndsCapture;
+      this.maximumCapture = maximumCapture;
+      this.firstMover = firstMover;
+      this.flipRows = flipRows;
+      this.flipCols = flipCols;
+      all = (1L << squares) - 1;
+      int half = size / 2;
+      topRow = (1L << half) - 1;
+      bottomRow = topRow << (squares - half);
+
+      rays = new int[4][squares][];
+      int[] rowStep = { 1, 1, -1, -1 };
+      int[] colStep = { -1, 1, -1, 1 };
+      for (int dir = 0; dir < 4; ++dir)
+      {
+         for (int s = 0; s < squares; ++s)
+         {
+            int[] ray = new int[size];
+            int n = 0;
+            for (int r = row(s) + rowStep[dir], c = col(s) + colStep[dir]; square(r, c) >= 0;
+                  r += rowStep[dir], c += colStep[dir])
+               ray[n++] = square(r, c);
+            rays[dir][s] = java.util.Arrays.copyOf(ray, n);
+         }
+      }
+   }
+
+   /** The variant named "english" or "international" */
+   public static Variant parse(String name)
+   {
+      return valueOf(name.toUpperCase());
+   }
+
+   /** The squares from "square" to the edge in direction "dir", nearest first */
+   public int[] ray(int dir, int square)
+   {
+      return rays[dir][square];
+   }
+
+   /** Return the square index of (row, col), or -1 for a light square or a cell off the board */
+   public int square(int row, int col)
+   {
+      if (row < 0 || row >= size || col < 0 || col >= size || ((row + col) & 1) != 0)
+         return -1;
+      return row * (size / 2) + (col >> 1);
+   }
+
+   public int row(int square)
+   {
+      return square / (size / 2);
+   }
+
+   public int col(int square)
+   {
+      return ((square % (size / 2)) << 1) | (row(square) & 1);
+   }
+
+   /**
+    * Return the standard draughts number of a square, 1 to squares. The
+    * first mover starts on the low numbers in English draughts and on the
+    * high ones in international draughts.
+    */
+   public int number(int square)
+   {
+      int half = size / 2;
+      int row = row(square);
+      int i = square % half;
+      return (flipRows ? size - 1 - row : row) * half + (flipCols ? half - 1 - i : i) + 1;
+   }
+
+   /** Return the square with the standard number, or -1 */
+   public int fromNumber(int number)
+   {
+      if (number < 1 || number > squares)
+         return -1;
+      int half = size / 2;
+      int row = (number - 1) / half;
+      int i = (number - 1) % half;
+      return (flipRows ? size - 1 - row : row) * half + (flipCols ? half - 1 - i : i);
+   }
+}
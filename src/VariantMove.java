@@ -0,0 +1,55 @@
+/**
+ * Moves of the variant engine are packed into a long, so move lists are plain
+ * long[] arrays. Unlike Move, a variant move is a whole turn: a multi-capture
+ * is one move, from the square it starts on to the one it ends on, with the
+ * set of pieces it takes. That is what the maximum-capture rule compares,
+ * and a flying king's path is not needed to play it.
+ *
+ * bits 0-49  captured squares, as a bitboard
+ * bits 50-55 from square
+ * bits 56-61 to square
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class VariantMove
+{
+   public static final long NONE = -1;
+
+   private static final long CAPTURED = (1L << 50) - 1;
+
+   private VariantMove()
+   {
+   }
+
+   public static long of(int from, int to, long captured)
+   {
+      return captured | ((long) from << 50) | ((long) to << 56);
+   }
+
+   public static int from(long move)
+   {
+      return (int) (move >>> 50) & 63;
+   }
+
+   public static int to(long move)
+   {
+      return (int) (move >>> 56) & 63;
+   }
+
+   public static long captured(long move)
+   {
+      return move & CAPTURED;
+   }
+
+   public static boolean isCapture(long move)
+   {
+      return (move & CAPTURED) != 0;
+   }
+
+   /** Standard notation, e.g. "32-28" or "28x17" (from and to only) */
+   public static String toString(long move, Variant variant)
+   {
+      return variant.number(from(move)) + (isCapture(move) ? "x" : "-") + variant.number(to(move));
+   }
+}
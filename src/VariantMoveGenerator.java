@@ -0,0 +1,141 @@
+/**
+ * Legal move generation for VariantPosition. Captures are mandatory and are
+ * generated as whole sequences by a depth-first walk from each piece, with
+ * the pieces taken so far left on the board (they block, and cannot be taken
+ * twice) and the mover's own square counted as empty. Kings of a variant with
+ * flying kings walk the Variant's precomputed rays: past any number of empty
+ * squares to an opponent's piece, then on to any empty square beyond it.
+ *
+ * Where the variant has the maximum-capture rule only the sequences taking
+ * the most pieces are kept, which is done as they are found: a longer one
+ * empties the list and a shorter one is dropped. Those rules also say a
+ * capture is the pieces it takes, so two routes with the same start, end
+ * and captured pieces are listed once; in English draughts the player picks
+ * the route, and each one counts, as it does in MoveGenerator.
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class VariantMoveGenerator
+{
+   // The longest move list in any reachable position is well below this
+   public static final int MAX_MOVES = 256;
+
+   private VariantMoveGenerator()
+   {
+   }
+
+   /** Write every legal move of the side to move into "moves" and return how many there are */
+   public static int generate(VariantPosition p, long[] moves)
+   {
+      Variant v = p.variant;
+      boolean red = p.sideToMove == Position.RED;
+      long own = p.own();
+      long opp = p.opponent();
+      long empty = p.empty();
+      int n = 0;
+      for (long b = own; b != 0; b &= b - 1)
+      {
+         int square = Long.numberOfTrailingZeros(b);
+         boolean king = ((p.kings >>> square) & 1) != 0;
+         n = addCaptures(v, moves, n, square, square, king, red, opp, empty | (1L << square), 0);
+      }
+      if (n > 0)
+         return n;
+
+      for (long b = own; b != 0; b &= b - 1)
+      {
+         int square = Long.numberOfTrailingZeros(b);
+         boolean king = ((p.kings >>> square) & 1) != 0;
+         for (int dir = 0; dir < 4; ++dir)
+         {
+            if (!king && !forward(dir, red))
+               continue;
+            int[] ray = v.ray(dir, square);
+            int reach = (king && v.flyingKings) ? ray.length : Math.min(1, ray.length);
+            for (int k = 0; k < reach && ((empty >>> ray[k]) & 1) != 0; ++k)
+               moves[n++] = VariantMove.of(square, ray[k], 0);
+         }
+      }
+      return n;
+   }
+
+   /** Return the legal move from "from" to "to", or VariantMove.NONE if there is none */
+   public static long find(VariantPosition p, int from, int to)
+   {
+      long[] moves = new long[MAX_MOVES];
+      int n = generate(p, moves);
+      for (int i = 0; i < n; ++i)
+      {
+         if (VariantMove.from(moves[i]) == from && VariantMove.to(moves[i]) == to)
+            return moves[i];
+      }
+      return VariantMove.NONE;
+   }
+
+   // Add every capture sequence that continues from "square", the piece having started on "origin"
+   private static int addCaptures(Variant v, long[] moves, int n, int origin, int square, boolean king, boolean red,
+         long opp, long empty, long captured)
+   {
+      boolean extended = false;
+      for (int dir = 0; dir < 4; ++dir)
+      {
+         if (!king && !v.menCaptureBackward && !forward(dir, red))
+            continue;
+         int[] ray = v.ray(dir, square);
+         int k = 0;
+         if (king && v.flyingKings)
+         {
+            while (k < ray.length && ((empty >>> ray[k]) & 1) != 0)
+               ++k;
+         }
+         if (k + 1 >= ray.length)
+            continue;
+         long target = 1L << ray[k];
+         if ((opp & target) == 0 || (captured & target) != 0)
+            continue;
+         // A flying king may stop on any empty square past the piece; anything else lands right behind it
+         int last = (king && v.flyingKings) ? ray.length : k + 2;
+         for (int l = k + 1; l < last && ((empty >>> ray[l]) & 1) != 0; ++l)
+         {
+            extended = true;
+            int landing = ray[l];
+            long crownRow = red ? v.bottomRow : v.topRow;
+            if (!king && v.crowningEndsCapture && ((crownRow >>> landing) & 1) != 0)
+               n = add(v, moves, n, VariantMove.of(origin, landing, captured | target));
+            else
+               n = addCaptures(v, moves, n, origin, landing, king, red, opp, empty, captured | target);
+         }
+      }
+      if (!extended && captured != 0)
+         n = add(v, moves, n, VariantMove.of(origin, square, captured));
+      return n;
+   }
+
+   // Add a complete capture, keeping only the longest, and only once, under the maximum-capture rule
+   private static int add(Variant v, long[] moves, int n, long move)
+   {
+      if (v.maximumCapture && n > 0)
+      {
+         int best = Long.bitCount(VariantMove.captured(moves[0]));
+         int count = Long.bitCount(VariantMove.captured(move));
+         if (count < best)
+            return n;
+         if (count > best)
+            n = 0;
+      }
+      for (int i = 0; v.maximumCapture && i < n; ++i)
+      {
+         if (moves[i] == move)
+            return n;
+      }
+      moves[n++] = move;
+      return n;
+   }
+
+   // Red men move down the board, black men up
+   private static boolean forward(int dir, boolean red)
+   {
+      return red == (dir == Variant.DOWN_LEFT || dir == Variant.DOWN_RIGHT);
+   }
+}
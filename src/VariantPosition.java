@@ -0,0 +1,242 @@
+/**
+ * A position of any Variant stored as 64-bit bitboards, for the rules engine
+ * that is not tied to the 8x8 board. Like Position it keeps no Swing state,
+ * and makeMove/unmakeMove use a preallocated undo stack so perft and any
+ * other walk of the tree do not allocate. A move is a whole turn (see
+ * VariantMove), so there is no multi-jump in progress to keep track of.
+ *
+ * Pieces taken by a move stay on the board until it is complete, as the
+ * international rules require: they cannot be jumped twice and block the
+ * capturing piece, which VariantMoveGenerator takes care of.
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class VariantPosition
+{
+   final Variant variant;
+   long red;    // red men and kings; red moves first, down the board
+   long black;  // black men and kings
+   long kings;  // kings of either colour
+   int sideToMove;
+
+   // Undo stack: red, black, kings and side to move before each makeMove, grown by doubling
+   private long[] undo = new long[4 * 64];
+   private int undoCount;
+
+   public VariantPosition(Variant variant)
+   {
+      this.variant = variant;
+   }
+
+   public VariantPosition(VariantPosition other)
+   {
+      variant = other.variant;
+      red = other.red;
+      black = other.black;
+      kings = other.kings;
+      sideToMove = other.sideToMove;
+   }
+
+   /** Each side's men on its first rowsOfMen rows, red to move */
+   public static VariantPosition start(Variant variant)
+   {
+      VariantPosition p = new VariantPosition(variant);
+      int men = variant.rowsOfMen * variant.size / 2;
+      p.red = (1L << men) - 1;
+      p.black = p.red << (variant.squares - men);
+      p.sideToMove = Position.RED;
+      return p;
+   }
+
+   /**
+    * Parse a PDN FEN such as "W:W31-50:B1-20" with the variant's standard
+    * numbering. The first mover, our red, is White in international draughts
+    * and Black in English draughts (see Variant.firstMover).
+    */
+   public static VariantPosition fromFen(Variant variant, String fen)
+   {
+      VariantPosition p = new VariantPosition(variant);
+      String[] fields = fen.trim().replace(".", "").split(":");
+      if (fields.length != 3 || fields[0].length() != 1)
+         throw new IllegalArgumentException("Bad FEN: " + fen);
+      p.sideToMove = colour(variant, fields[0].charAt(0), fen);
+      for (int i = 1; i < 3; ++i)
+      {
+         if (fields[i].isEmpty())
+            throw new IllegalArgumentException("Bad FEN: " + fen);
+         int side = colour(variant, fields[i].charAt(0), fen);
+         String list = fields[i].substring(1);
+         if (list.isEmpty())
+            continue;
+         for (String token : list.split(","))
+         {
+            boolean king = token.startsWith("K");
+            if (king)
+               token = token.substring(1);
+            String[] range = token.split("-");
+            try
+            {
+               int first = Integer.parseInt(range[0].trim());
+               int last = (range.length > 1) ? Integer.parseInt(range[1].trim()) : first;
+               for (int n = first; n <= last; ++n)
+               {
+                  int square = variant.fromNumber(n);
+                  if (square < 0)
+                     throw new IllegalArgumentException("Bad FEN square " + n + ": " + fen);
+                  long bit = 1L << square;
+                  if (side == Position.RED)
+                     p.red |= bit;
+                  else
+                     p.black |= bit;
+                  if (king)
+                     p.kings |= bit;
+               }
+            }
+            catch (NumberFormatException e)
+            {
+               throw new IllegalArgumentException("Bad FEN: " + fen, e);
+            }
+         }
+      }
+      if ((p.red & p.black) != 0)
+         throw new IllegalArgumentException("Bad FEN, square used twice: " + fen);
+      return p;
+   }
+
+   private static int colour(Variant variant, char c, String fen)
+   {
+      if (c != 'W' && c != 'B')
+         throw new IllegalArgumentException("Bad FEN colour " + c + ": " + fen);
+      return (c == variant.firstMover) ? Position.RED : Position.BLACK;
+   }
+
+   /** PDN FEN of this position, see fromFen */
+   public String toFen()
+   {
+      // White's pieces are listed first whichever side that is
+      long white = (variant.firstMover == 'W') ? red : black;
+      long blacks = (variant.firstMover == 'W') ? black : red;
+      StringBuilder sb = new StringBuilder();
+      sb.append((sideToMove == Position.RED) == (variant.firstMover == 'W') ? 'W' : 'B');
+      sb.append(":W");
+      appendSquares(sb, white);
+      sb.append(":B");
+      appendSquares(sb, blacks);
+      return sb.toString();
+   }
+
+   private void appendSquares(StringBuilder sb, long pieces)
+   {
+      boolean first = true;
+      for (int n = 1; n <= variant.squares; ++n)
+      {
+         long bit = 1L << variant.fromNumber(n);
+         if ((pieces & bit) == 0)
+            continue;
+         if (!first)
+            sb.append(',');
+         if ((kings & bit) != 0)
+            sb.append('K');
+         sb.append(n);
+         first = false;
+      }
+   }
+
+   public Variant variant()
+   {
+      return variant;
+   }
+
+   public long red()
+   {
+      return red;
+   }
+
+   public long black()
+   {
+      return black;
+   }
+
+   public long kings()
+   {
+      return kings;
+   }
+
+   public long empty()
+   {
+      return ~(red | black) & variant.all;
+   }
+
+   public int sideToMove()
+   {
+      return sideToMove;
+   }
+
+   /** Pieces of the side to move */
+   public long own()
+   {
+      return (sideToMove == Position.RED) ? red : black;
+   }
+
+   /** Pieces of the side not to move */
+   public long opponent()
+   {
+      return (sideToMove == Position.RED) ? black : red;
+   }
+
+   /** Play a move produced by VariantMoveGenerator so that unmakeMove() can take it back */
+   public void makeMove(long move)
+   {
+      if (4 * undoCount == undo.length)
+         undo = java.util.Arrays.copyOf(undo, undo.length * 2);
+      int i = 4 * undoCount++;
+      undo[i] = red;
+      undo[i + 1] = black;
+      undo[i + 2] = kings;
+      undo[i + 3] = sideToMove;
+      play(move);
+   }
+
+   /** Take back the last makeMove() */
+   public void unmakeMove()
+   {
+      int i = 4 * --undoCount;
+      red = undo[i];
+      black = undo[i + 1];
+      kings = undo[i + 2];
+      sideToMove = (int) undo[i + 3];
+   }
+
+   /** Play a move produced by VariantMoveGenerator for this position, without an undo record */
+   public void play(long move)
+   {
+      long from = 1L << VariantMove.from(move);
+      long to = 1L << VariantMove.to(move);
+      long captured = VariantMove.captured(move);
+      boolean king = (kings & from) != 0;
+      // A king's capture can end on the square it started from, so clear before setting
+      if (sideToMove == Position.RED)
+      {
+         red = (red & ~from) | to;
+         black &= ~captured;
+      }
+      else
+      {
+         black = (black & ~from) | to;
+         red &= ~captured;
+      }
+      kings &= ~(from | captured);
+      // A man is crowned only if its move ends on the far row
+      long crownRow = (sideToMove == Position.RED) ? variant.bottomRow : variant.topRow;
+      if (king || (to & crownRow) != 0)
+         kings |= to;
+      sideToMove ^= 1;
+   }
+
+   /** Number of moves that unmakeMove() can take back */
+   public int undoDepth()
+   {
+      return undoCount;
+   }
+}
@@ -0,0 +1,64 @@
+/**
+ * Zobrist keys for hashing positions: one random 64-bit key per piece type
+ * and square, one for black to move and one per square for a pending multi-jump.
+ * Position keeps its hash up to date as moves are played.
+ *
+ * @author Zach McGuckin
+ *
+ */
+public final class Zobrist
+{
+   static final long[][] PIECE = new long[4][Bitboard.SQUARES]; // indexed by Position.RED_MAN etc.
+   static final long[] PENDING = new long[Bitboard.SQUARES];
+   static final long BLACK_TO_MOVE;
+
+   static
+   {
+      // Fixed seed so hashes, and everything keyed by them, are the same on every run
+      long seed = 0x2545F4914F6CDD1DL;
+      for (int type = 0; type < 4; ++type)
+      {
+         for (int square = 0; square < Bitboard.SQUARES; ++square)
+         {
+            seed += 0x9E3779B97F4A7C15L;
+            PIECE[type][square] = mix(seed);
+         }
+      }
+      for (int square = 0; square < Bitboard.SQUARES; ++square)
+      {
+         seed += 0x9E3779B97F4A7C15L;
+         PENDING[square] = mix(seed);
+      }
+      seed += 0x9E3779B97F4A7C15L;
+      BLACK_TO_MOVE = mix(seed);
+   }
+
+   private Zobrist()
+   {
+   }
+
+   /** Compute the hash of p from scratch */
+   public static long hash(Position p)
+   {
+      long h = 0;
+      for (int square = 0; square < Bitboard.SQUARES; ++square)
+      {
+         int type = p.pieceType(1 << square);
+         if (type >= 0)
+            h ^= PIECE[type][square];
+      }
+      if (p.pending >= 0)
+         h ^= PENDING[p.pending];
+      if (p.sideToMove == Position.BLACK)
+         h ^= BLACK_TO_MOVE;
+      return h;
+   }
+
+   // SplitMix64 finaliser
+   private static long mix(long z)
+   {
+      z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+      z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+      return z ^ (z >>> 31);
+   }
+}